@@ -0,0 +1,199 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Entry store bounded by the approximate memory retained by its entries.
+ * Each entry is weighed when added, see {@link #sizeOf(String, String, Throwable)},
+ * errors having a flat estimate, and the oldest entries are evicted as long as the total exceeds the budget.
+ * An entry weighing more than the whole budget is not stored, the older
+ * entries are kept. The store can be bounded by a number of entries too.
+ * <p>
+ * The store is a non-blocking queue with atomic counters. A single writer at
+ * a time evicts, the others add their entry and leave; the evicting writer
+ * checks the total again before leaving, so the store may exceed the budget
+ * by the entries being added, but never evicts more than needed.
+ * </p>
+ */
+final class BudgetEntryStore implements EntryStore {
+
+    /**
+     * Estimated size of an entry without its strings and error: the event,
+     * its queue node and their headers.
+     */
+    static final int ENTRY_SIZE = 64;
+
+    /**
+     * Estimated size retained by an error without its message, including a
+     * stack trace of about 30 frames. The actual trace is not weighed: it
+     * would be built on the logging thread for each error and cause.
+     */
+    static final int ERROR_SIZE = 2048;
+
+    /**
+     * Maximum number of causes of an error taken into account.
+     */
+    private static final int MAX_CAUSES = 10;
+
+    /**
+     * The entries, oldest first.
+     */
+    private final Queue<Sized> entries = new ConcurrentLinkedQueue<Sized>();
+
+    /**
+     * The total size of the entries.
+     */
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * The number of entries.
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Whether a writer is evicting entries.
+     */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * The maximum size of the entries, in bytes.
+     */
+    private final long budget;
+
+    /**
+     * The maximum number of entries, 0 or less for no limit.
+     */
+    private final int capacity;
+
+    /**
+     * Creates the store.
+     *
+     * @param budget
+     *            the maximum size of the entries, in bytes
+     * @param capacity
+     *            the maximum number of entries, 0 or less for no limit
+     */
+    BudgetEntryStore(long budget, int capacity) {
+        this.budget = budget;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Estimates the memory retained by an entry.
+     *
+     * @param tag
+     *            the tag
+     * @param message
+     *            the message
+     * @param error
+     *            the error, can be <code>null</code>
+     * @return the estimated size in bytes
+     */
+    static int sizeOf(String tag, String message, Throwable error) {
+        int size = ENTRY_SIZE + sizeOf(tag) + sizeOf(message);
+        Throwable e = error;
+        for (int i = 0; e != null && i < MAX_CAUSES; i++) {
+            size += ERROR_SIZE + sizeOf(e.getMessage());
+            e = e.getCause();
+        }
+        return size;
+    }
+
+    /**
+     * Estimates the size of a string: object header, fields and characters.
+     */
+    private static int sizeOf(String s) {
+        return s == null ? 0 : 40 + 2 * s.length();
+    }
+
+    public void add(int level, long time, String tag, String message, Throwable error) {
+        int weight = sizeOf(tag, message, error);
+        if (weight > budget) {
+            // Would evict all the other entries, then itself.
+            return;
+        }
+        entries.offer(new Sized(new LogEvent(0, level, time, tag, message, error), weight));
+        size.addAndGet(weight);
+        count.incrementAndGet();
+        while (isFull() && evicting.compareAndSet(false, true)) {
+            try {
+                while (isFull()) {
+                    Sized evicted = entries.poll();
+                    if (evicted == null) {
+                        break;
+                    }
+                    size.addAndGet(-evicted.size);
+                    count.decrementAndGet();
+                }
+            } finally {
+                evicting.set(false);
+            }
+            // Checked again, as the entries added while evicting were not
+            // evicted by their writers.
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the entries exceed the budget or the
+     *         capacity
+     */
+    private boolean isFull() {
+        return size.get() > budget || (capacity > 0 && count.get() > capacity);
+    }
+
+    public List<String> getEntries() {
+        EntryList result = new EntryList();
+        accept(result);
+        return result;
+    }
+
+    public void accept(EntryVisitor visitor) {
+        // The queue iterator is weakly consistent, it does not lock.
+        EntryRenderer renderer = new EntryRenderer();
+        for (Sized entry : entries) {
+            visitor.visit(renderer.render(entry.event));
+        }
+    }
+
+    /**
+     * @return the estimated size of the entries, in bytes
+     */
+    long getSize() {
+        return size.get();
+    }
+
+    /**
+     * An entry and its estimated size.
+     */
+    private static final class Sized {
+
+        final LogEvent event;
+
+        final int size;
+
+        Sized(LogEvent event, int size) {
+            this.event = event;
+            this.size = size;
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Finds the code calling the log methods which do not take a tag. The caller
+ * is the first frame of the current stack whose class is not escaped. Androlog
+ * classes are always escaped, applications can escape their own logging
+ * wrappers.
+ */
+final class CallerResolver {
+
+    /**
+     * The escaped class names. Never modified once the resolver is built.
+     */
+    private final Set<String> escaped;
+
+    /**
+     * Whether the caller method and line are added to the messages.
+     */
+    private final boolean details;
+
+    /**
+     * Creates a resolver.
+     *
+     * @param escaped
+     *            the class names to escape in addition to the Androlog
+     *            classes
+     * @param details
+     *            <code>true</code> to add the caller method and line to the
+     *            messages
+     */
+    CallerResolver(Collection<String> escaped, boolean details) {
+        this.escaped = new HashSet<String>(Constants.CLASSNAME_TO_ESCAPE);
+        this.escaped.add(CallerResolver.class.getName());
+        this.escaped.add(Logger.class.getName());
+        this.escaped.addAll(escaped);
+        this.details = details;
+    }
+
+    /**
+     * Gets the stack frame of the caller.
+     *
+     * @return the first non escaped frame of the current stack, or
+     *         <code>null</code> if there is none.
+     */
+    StackTraceElement getCaller() {
+        // A throwable created here records the stack starting at this method,
+        // Thread.getStackTrace() would add the frames of its own machinery.
+        StackTraceElement[] stack = new Throwable().getStackTrace();
+        if (stack != null) {
+            for (int i = 0; i < stack.length; i++) {
+                String cn = stack[i].getClassName();
+                if (cn != null && !escaped.contains(cn)) {
+                    return stack[i];
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds the caller method and line to the message if enabled.
+     *
+     * @param caller
+     *            the caller frame
+     * @param msg
+     *            the message
+     * @return the message to log
+     */
+    String decorate(StackTraceElement caller, String msg) {
+        if (!details) {
+            return msg;
+        }
+        return "[" + caller.getMethodName() + ":" + caller.getLineNumber() + "] " + msg;
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Computes the tags of the messages logged on behalf of a class, and caches
+ * them. The qualified class name is always used to resolve the log level, so
+ * the configured tag hierarchy applies whatever the emitted tag is. When the
+ * abbreviation is enabled, the emitted tag is shortened to fit the
+ * {@link #MAX_TAG_LENGTH} characters accepted by the Android Log:
+ * <code>com.acme.app.ui.MainActivity</code> becomes
+ * <code>c.a.app.ui.MainActivity</code>, leading packages being abbreviated
+ * to their initial until the tag fits.
+ * <p>
+ * The cache is a fixed size table indexed by the class identity hash code.
+ * Classes are weakly referenced so the cache does not prevent their
+ * unloading, and a slot taken by another class is simply overwritten. The
+ * class names found in the stack trace are cached the same way in a second
+ * table indexed by the name hash code. Lookups and updates do not lock.
+ * </p>
+ * <p>
+ * A cache only depends on whether the tags are abbreviated, so it is shared
+ * by the configuration snapshots abbreviating the same way.
+ * </p>
+ */
+final class ClassTagCache {
+
+    /**
+     * Maximum length of the tags accepted by the Android Log.
+     */
+    static final int MAX_TAG_LENGTH = 23;
+
+    /**
+     * Number of slots, must be a power of two.
+     */
+    private static final int SIZE = 256;
+
+    /**
+     * Whether the tags are abbreviated.
+     */
+    private final boolean abbreviate;
+
+    private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<Entry>(SIZE);
+
+    private final AtomicReferenceArray<Entry> names = new AtomicReferenceArray<Entry>(SIZE);
+
+    /**
+     * Creates a cache.
+     *
+     * @param abbreviate
+     *            <code>true</code> to abbreviate the tags to
+     *            {@link #MAX_TAG_LENGTH} characters
+     */
+    ClassTagCache(boolean abbreviate) {
+        this.abbreviate = abbreviate;
+    }
+
+    /**
+     * Checks whether the tags of this cache are abbreviated.
+     *
+     * @return <code>true</code> if the tags are abbreviated
+     */
+    boolean isAbbreviating() {
+        return abbreviate;
+    }
+
+    /**
+     * Gets the names of the given class.
+     *
+     * @param clazz
+     *            the class
+     * @return the entry holding the qualified class name and the tag.
+     */
+    Entry get(Class<?> clazz) {
+        int index = System.identityHashCode(clazz) & (SIZE - 1);
+        Entry entry = entries.get(index);
+        if (entry != null && entry.clazz.get() == clazz) {
+            return entry;
+        }
+        String name = clazz.getName();
+        entry = new Entry(clazz, name, getTag(name));
+        entries.set(index, entry);
+        return entry;
+    }
+
+    /**
+     * Gets the names of the class with the given name, as found in a stack
+     * trace.
+     *
+     * @param name
+     *            the qualified class name
+     * @return the entry holding the qualified class name and the tag.
+     */
+    Entry get(String name) {
+        int index = name.hashCode() & (SIZE - 1);
+        Entry entry = names.get(index);
+        if (entry != null && (entry.name == name || entry.name.equals(name))) {
+            return entry;
+        }
+        entry = new Entry(null, name, getTag(name));
+        names.set(index, entry);
+        return entry;
+    }
+
+    /**
+     * Computes the tag of the given class name.
+     *
+     * @param name
+     *            the qualified class name
+     * @return the tag to log with
+     */
+    private String getTag(String name) {
+        if (!abbreviate || name == null || name.length() <= MAX_TAG_LENGTH) {
+            return name;
+        }
+        return abbreviate(name);
+    }
+
+    /**
+     * Abbreviates the leading packages of a class name until it fits
+     * {@link #MAX_TAG_LENGTH}. If the name is still too long once all the
+     * packages are abbreviated, the simple class name is used and truncated
+     * if needed.
+     *
+     * @param name
+     *            the qualified class name
+     * @return the abbreviated name
+     */
+    static String abbreviate(String name) {
+        int simpleName = name.lastIndexOf('.') + 1;
+        StringBuilder tag = new StringBuilder(MAX_TAG_LENGTH);
+        int length = name.length();
+        int segment = 0;
+        while (length > MAX_TAG_LENGTH && segment < simpleName) {
+            int end = name.indexOf('.', segment);
+            // Keep the initial and the dot.
+            tag.append(name.charAt(segment)).append('.');
+            length -= end - segment - 1;
+            segment = end + 1;
+        }
+        if (length > MAX_TAG_LENGTH) {
+            length = Math.min(name.length() - simpleName, MAX_TAG_LENGTH);
+            return name.substring(simpleName, simpleName + length);
+        }
+        return tag.append(name, segment, name.length()).toString();
+    }
+
+    /**
+     * The names of a class.
+     */
+    static final class Entry {
+
+        /**
+         * The class, <code>null</code> for the entries found by name.
+         */
+        private final WeakReference<Class<?>> clazz;
+
+        /**
+         * The qualified class name, used to resolve the log level.
+         */
+        final String name;
+
+        /**
+         * The tag to log with.
+         */
+        final String tag;
+
+        private Entry(Class<?> clazz, String name, String tag) {
+            this.clazz = clazz == null ? null : new WeakReference<Class<?>>(clazz);
+            this.name = name;
+            this.tag = tag;
+        }
+    }
+
+}
@@ -51,6 +51,53 @@ public class Constants {
      * Property to set the number of log entry included in reports.
      */
     public static final String ANDROLOG_REPORT_LOG_ITEMS = "androlog.report.log.items";
+    /**
+     * Property enabling a log entry buffer per thread, set to the number of
+     * entries kept for each thread. The buffers are merged by time when a
+     * report is built, keeping {@link #ANDROLOG_REPORT_LOG_ITEMS} entries.
+     */
+    public static final String ANDROLOG_REPORT_LOG_THREAD_ITEMS = "androlog.report.log.thread.items";
+    /**
+     * Property keeping a separate number of entries for each level tier in
+     * the reports: three comma separated numbers for the
+     * {@link #VERBOSE}/{@link #DEBUG}, {@link #INFO} and {@link #WARN} and
+     * above entries, such as <code>200,100,50</code>. The tiers are merged in
+     * time order in the reports. Takes precedence over
+     * {@link #ANDROLOG_REPORT_LOG_THREAD_ITEMS}.
+     */
+    public static final String ANDROLOG_REPORT_LOG_TIERS = "androlog.report.log.tiers";
+    /**
+     * Property bounding the approximate memory retained by the log entries
+     * collected for the reports, such as <code>256k</code> or <code>1m</code>.
+     * The oldest entries are evicted to stay within the budget, in addition to
+     * the {@link #ANDROLOG_REPORT_LOG_ITEMS} limit. Takes precedence over
+     * {@link #ANDROLOG_REPORT_LOG_THREAD_ITEMS}.
+     */
+    public static final String ANDROLOG_REPORT_LOG_BYTES = "androlog.report.log.bytes";
+    /**
+     * Property enabling the storage of the log entries collected for the
+     * reports outside of the Java heap, set to the size of the direct buffer
+     * holding them, such as <code>1m</code>. The entries are encoded when
+     * collected, the oldest ones being evicted when the buffer is full; the
+     * stack traces are only printed for the last errors, when reported. Takes
+     * precedence over {@link #ANDROLOG_REPORT_LOG_BYTES} and
+     * {@link #ANDROLOG_REPORT_LOG_THREAD_ITEMS}.
+     */
+    public static final String ANDROLOG_REPORT_LOG_DIRECT = "androlog.report.log.direct";
+    /**
+     * Property storing the log entries collected for the reports in a file
+     * mapped in memory, set to the size of the file, such as <code>256k</code>.
+     * The entries survive the death of the process. If the process did not
+     * call {@link Log#reset()} before dying, the next configuration finds its
+     * entries and sends a report, without the stack traces of their errors.
+     * A process dying of an uncaught exception reported successfully is not
+     * reported again. Configuring the same size again keeps the entries.
+     * Each process of the application has its own file; if the process name
+     * cannot be found, the entries are kept in memory by one of the other
+     * stores.
+     * Takes precedence over the other stores.
+     */
+    public static final String ANDROLOG_REPORT_LOG_MAPPED = "androlog.report.log.mapped";
     /**
      * Property defining the set of {@link Reporter}s. The property's value is a
      * comma separated list of {@link Reporter} class name.
@@ -73,6 +120,36 @@ public class Constants {
      * Property activating the reporting.
      */
     public static final String ANDROLOG_REPORT_ACTIVE = "androlog.report.active";
+    /**
+     * Property setting the number of reports triggered by the log calls
+     * waiting to be sent, 4 by default. The reports are sent one at a time by
+     * a low priority thread; when the queue is full, the reports are dropped
+     * according to {@link #ANDROLOG_REPORT_QUEUE_POLICY}.
+     */
+    public static final String ANDROLOG_REPORT_QUEUE = "androlog.report.queue";
+    /**
+     * Property setting the report dropped when the queue of reports is full:
+     * <code>drop-newest</code> (default) keeps the reports already queued,
+     * <code>drop-oldest</code> drops the oldest queued report.
+     */
+    public static final String ANDROLOG_REPORT_QUEUE_POLICY = "androlog.report.queue.policy";
+    /**
+     * Property grouping the reports triggered by the log calls within the
+     * given number of milliseconds into a single report, listing the
+     * triggering messages and errors. 0 (default) sends a report per trigger.
+     */
+    public static final String ANDROLOG_REPORT_COALESCE_MS = "androlog.report.coalesce.ms";
+    /**
+     * Property setting the time given to each reporter to send a report, in
+     * milliseconds. The reporters send a report concurrently; a reporter still
+     * running at its timeout is interrupted and its result is
+     * {@link ReportResult.Outcome#TIMED_OUT}. Until it completes, it is not
+     * called again and its results are {@link ReportResult.Outcome#SKIPPED}.
+     * 0 (default) waits until the reporters complete. The timeout of a reporter can be set by adding its
+     * class name to the property, such as
+     * <code>androlog.report.timeout.de.akquinet.android.androlog.reporter.PostReporter=10000</code>.
+     */
+    public static final String ANDROLOG_REPORT_TIMEOUT = "androlog.report.timeout";
     /**
      * Property activating addition of timestamps to logs collected for the report
      */
@@ -86,6 +163,51 @@ public class Constants {
      * enabled by default.
      */
     public static final String ANDROLOG_REPORT_EXCEPTION_HANDLER_PROPAGATION = "androlog.report.exception.handler.propagation";
+    /**
+     * Property defining classes to skip when computing the tag of the log
+     * methods without tag, such as application logging wrappers. The
+     * property's value is a comma separated list of class names.
+     */
+    public static final String ANDROLOG_CALLER_ESCAPE = "androlog.caller.escape";
+    /**
+     * Property adding the caller method name and line number to the messages
+     * logged by the log methods without tag.
+     */
+    public static final String ANDROLOG_CALLER_DETAILS = "androlog.caller.details";
+    /**
+     * Property enabling the abbreviation of the tags computed from class
+     * names, so they fit the 23 characters accepted by the Android Log. The
+     * log levels still apply to the qualified class names.
+     */
+    public static final String ANDROLOG_TAG_ABBREVIATE = "androlog.tag.abbreviate";
+    /**
+     * Prefix of the properties limiting the number of messages sent to the
+     * Android Log for a tag and its children, such as
+     * <code>androlog.ratelimit.com.acme.sync=50/s</code>. The rate is a number
+     * of messages per second (<code>/s</code>, default), minute
+     * (<code>/m</code>) or hour (<code>/h</code>). The tag and all its
+     * children share a single limit: with the example above,
+     * <code>com.acme.sync.Upload</code> and <code>com.acme.sync.Download</code>
+     * take from the same 50 messages per second, unless a child has its own
+     * limit. The number of suppressed messages is logged at most once per
+     * period, with the next accepted message or on its own.
+     */
+    public static final String ANDROLOG_RATELIMIT_PREFIX = "androlog.ratelimit.";
+    /**
+     * Property enabling the collapsing of the messages repeated by a thread:
+     * consecutive messages with the same level, tag and message are replaced
+     * by a single "repeated N times" line. The line is logged when the thread
+     * logs another message or after {@link #ANDROLOG_REPEAT_TIMEOUT}, and
+     * before a report is built. The dropped repetitions do not trigger
+     * reports, only their first occurrence and the summary lines do, like
+     * other messages reaching {@link #ANDROLOG_REPORT_TRIGGER_LEVEL}.
+     */
+    public static final String ANDROLOG_REPEAT_COLLAPSE = "androlog.repeat.collapse";
+    /**
+     * Property setting the maximum duration, in milliseconds, of a run of
+     * repeated messages before its summary is logged. 5000 by default.
+     */
+    public static final String ANDROLOG_REPEAT_TIMEOUT = "androlog.repeat.timeout";
     /**
      * Priority constant for the println method; use Log.v.
      */
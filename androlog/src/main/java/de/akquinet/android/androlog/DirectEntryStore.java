@@ -0,0 +1,736 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Entry store encoding the entries in a direct {@link ByteBuffer} allocated
+ * once, so a deep history does not grow the Java heap nor the work of the
+ * garbage collector. The buffer is a ring of {@link #SLOT_SIZE} bytes slots,
+ * an entry taking one slot or more. The first slot of an entry holds:
+ * <pre>
+ * long  marker: sequence number of the slot plus one
+ * byte  kind: first slot of an entry
+ * byte  level
+ * byte  index of the error in the error table, or -1
+ * short tag id, or -1 if the tag is in the data
+ * long  time in milliseconds, negative if not timestamped
+ * short length of the tag
+ * int   length of the message
+ * short length of the error summary
+ * UTF-8 bytes of the tag, message and error summary
+ * </pre>
+ * The following slots hold a marker, a kind byte and the rest of the data.
+ * The number of slots of an entry follows from its lengths. The tag and the
+ * error summary are truncated to {@link #MAX_SHORT_LENGTH} bytes.
+ * <p>
+ * The slots work like the {@link LogEntryBuffer} slots: a writer takes the
+ * sequence numbers of its slots with a single atomic addition, claims each
+ * slot with a compare and set on its published sequence, writes its data
+ * and publishes the sequences with volatile stores. Writers never lock and
+ * never wait for each other, nor for the readers. A reader only decodes the
+ * entries whose slots publish the expected sequences before and after
+ * reading them, so it never returns an entry being overwritten. The oldest
+ * entries are overwritten by the new ones; the number of entries is bounded
+ * when reading.
+ * </p>
+ * <p>
+ * Tags are stored once in a dictionary holding up to {@link #MAX_TAGS}
+ * tags. Errors cannot be kept outside of the heap: the entry stores the
+ * error summary (its class and message), and the error itself is kept in a
+ * table of the last {@link #MAX_ERRORS} errors. Its stack trace is printed
+ * when the entries are read, if the error is still in the table; otherwise
+ * the summary is used. Nothing is printed on the logging threads.
+ * </p>
+ * <p>
+ * The store can also be a file mapped in memory, see
+ * {@link #open(File, int, int)}. The file starts with a {@link #FILE_HEADER}
+ * bytes header holding the state of the store, and the markers of the slots
+ * are written in the file too. Tags are then always written in the entries.
+ * As the operating system writes back the mapped pages, the entries survive
+ * the death of the process without flushing, and the store opened by the
+ * next process finds them if the previous one was not closed. The stack
+ * traces of the recovered entries are lost, their summaries are kept.
+ * </p>
+ */
+final class DirectEntryStore implements EntryStore {
+
+    /**
+     * Maximum number of tags in the dictionary.
+     */
+    static final int MAX_TAGS = 1024;
+
+    /**
+     * Number of errors kept in the heap to print their stack traces.
+     */
+    static final int MAX_ERRORS = 64;
+
+    /**
+     * Size of a slot.
+     */
+    static final int SLOT_SIZE = 64;
+
+    /*
+     * Layout of a slot.
+     */
+    private static final int MARKER = 0;
+
+    private static final int KIND = 8;
+
+    private static final int DATA = 9;
+
+    private static final int LEVEL = 9;
+
+    private static final int ERROR = 10;
+
+    private static final int TAG_ID = 11;
+
+    private static final int TIME = 13;
+
+    private static final int TAG_LENGTH = 21;
+
+    private static final int MESSAGE_LENGTH = 23;
+
+    private static final int SUMMARY_LENGTH = 27;
+
+    private static final int FIRST_DATA = 29;
+
+    /**
+     * Maximum length of the lengths stored as shorts, in bytes.
+     */
+    static final int MAX_SHORT_LENGTH = 0xFFFF;
+
+    /**
+     * Kind of the released slots of an entry which could not be written.
+     */
+    private static final byte EMPTY = 0;
+
+    /**
+     * Kind of the first slot of an entry.
+     */
+    private static final byte FIRST = 1;
+
+    /**
+     * Kind of the following slots of an entry.
+     */
+    private static final byte NEXT = 2;
+
+    /**
+     * Published value of a slot being written.
+     */
+    private static final long WRITING = -1;
+
+    /**
+     * Number of attempts to claim a slot being written by another writer
+     * before dropping the entry.
+     */
+    private static final int MAX_CLAIM_ATTEMPTS = 64;
+
+    private static final String UTF_8 = "UTF-8";
+
+    private static final byte[] NO_BYTES = new byte[0];
+
+    /**
+     * Name of the mapped file of the main process, in the files directory of
+     * the application. See {@link #getFileName(String, String)} for the
+     * other processes.
+     */
+    static final String FILE_NAME = "androlog-entries.ring";
+
+    /**
+     * Size of the header of a mapped file.
+     */
+    static final int FILE_HEADER = 32;
+
+    private static final int MAGIC = 0x414c5253; // ALRS
+
+    private static final int MAGIC_OFFSET = 0;
+
+    private static final int SIZE_OFFSET = 4;
+
+    private static final int STATE_OFFSET = 8;
+
+    /**
+     * State of a mapped file used by a process.
+     */
+    private static final byte OPEN = 1;
+
+    /**
+     * State of a mapped file closed by {@link #close()}.
+     */
+    private static final byte CLOSED = 0;
+
+    /**
+     * The header of a mapped file, <code>null</code> if not mapped.
+     */
+    private final ByteBuffer header;
+
+    /**
+     * <code>true</code> if the store holds the entries of a process which
+     * did not close it.
+     */
+    private final boolean recovered;
+
+    /**
+     * The ring. Only accessed with absolute positions or through duplicates,
+     * as its position is shared.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The number of slots.
+     */
+    private final int slots;
+
+    /**
+     * The mapped file, <code>null</code> if not mapped.
+     */
+    private final File file;
+
+    /**
+     * The maximum number of entries, 0 or less for no limit.
+     */
+    private volatile int capacity;
+
+    /**
+     * The sequence number, plus one, held by each slot; 0 if never written,
+     * {@link #WRITING} while written.
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * The next sequence number to take.
+     */
+    private final AtomicLong next = new AtomicLong();
+
+    private final Map<String, Integer> tagIds = new ConcurrentHashMap<String, Integer>();
+
+    private final AtomicReferenceArray<String> tags = new AtomicReferenceArray<String>(MAX_TAGS);
+
+    /**
+     * The last errors, with the sequence number of their entry.
+     */
+    private final AtomicReferenceArray<ErrorRef> errors = new AtomicReferenceArray<ErrorRef>(MAX_ERRORS);
+
+    private final AtomicLong nextError = new AtomicLong();
+
+    /**
+     * Creates the store.
+     *
+     * @param size
+     *            the size of the buffer in bytes
+     * @param capacity
+     *            the maximum number of entries, 0 or less for no limit
+     */
+    DirectEntryStore(int size, int capacity) {
+        this(ByteBuffer.allocateDirect(size - size % SLOT_SIZE), null, null, capacity);
+    }
+
+    private DirectEntryStore(ByteBuffer buffer, ByteBuffer header, File file, int capacity) {
+        this.buffer = buffer;
+        this.slots = buffer.capacity() / SLOT_SIZE;
+        this.header = header;
+        this.file = file;
+        this.capacity = capacity;
+        this.published = new AtomicLongArray(slots);
+        if (header == null) {
+            recovered = false;
+            return;
+        }
+        if (header.get(STATE_OFFSET) == OPEN) {
+            // Published as left by the previous process, the entries it did
+            // not finish writing are skipped by the readers.
+            long last = 0;
+            for (int index = 0; index < slots; index++) {
+                long marker = buffer.getLong(index * SLOT_SIZE + MARKER);
+                if (marker > 0 && (marker - 1) % slots == index) {
+                    published.set(index, marker);
+                    last = Math.max(last, marker);
+                }
+            }
+            next.set(last);
+        } else {
+            for (int index = 0; index < slots; index++) {
+                buffer.putLong(index * SLOT_SIZE + MARKER, 0);
+            }
+        }
+        recovered = !getEntries().isEmpty();
+        header.put(STATE_OFFSET, OPEN);
+    }
+
+    /**
+     * Opens a store mapped to the given file. If the file holds the entries
+     * of a process which did not close its store, they are kept and
+     * {@link #isRecovered()} returns <code>true</code>; otherwise the store
+     * starts empty.
+     *
+     * @param file
+     *            the file, created if needed
+     * @param size
+     *            the size of the ring in bytes
+     * @param capacity
+     *            the maximum number of entries, 0 or less for no limit
+     * @return the store
+     * @throws IOException
+     *             if the file cannot be mapped
+     */
+    static DirectEntryStore open(File file, int size, int capacity) throws IOException {
+        size -= size % SLOT_SIZE;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            // The mapping stays valid once the file is closed.
+            MappedByteBuffer map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                    FILE_HEADER + size);
+            map.position(0);
+            map.limit(FILE_HEADER);
+            ByteBuffer header = map.slice();
+            map.limit(FILE_HEADER + size);
+            map.position(FILE_HEADER);
+            ByteBuffer ring = map.slice();
+            if (header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(SIZE_OFFSET) != size) {
+                // New file, or written with another size.
+                header.putInt(MAGIC_OFFSET, MAGIC);
+                header.putInt(SIZE_OFFSET, size);
+                header.put(STATE_OFFSET, CLOSED);
+            }
+            return new DirectEntryStore(ring, header, file, capacity);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Gets the name of the mapped file of a process. Each process of the
+     * application has its own file, so a process neither overwrites the
+     * entries of another one nor recovers them as those of a dead process.
+     *
+     * @param packageName
+     *            the package name of the application
+     * @param processName
+     *            the name of the process
+     * @return {@link #FILE_NAME} for the main process, a name derived from
+     *         the process name otherwise
+     */
+    static String getFileName(String packageName, String processName) {
+        if (processName.equals(packageName)) {
+            return FILE_NAME;
+        }
+        if (processName.startsWith(packageName + ":")) {
+            processName = processName.substring(packageName.length() + 1);
+        }
+        StringBuilder name = new StringBuilder("androlog-entries-");
+        for (int i = 0; i < processName.length(); i++) {
+            char c = processName.charAt(i);
+            boolean safe = c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                    || c == '.' || c == '-';
+            name.append(safe ? c : '_');
+        }
+        return name.append(".ring").toString();
+    }
+
+    /**
+     * Checks whether the store holds the entries of a process which did not
+     * close it, i.e. which probably died.
+     *
+     * @return <code>true</code> if entries were recovered
+     */
+    boolean isRecovered() {
+        return recovered;
+    }
+
+    /**
+     * Checks whether the store is mapped to the given file with the given
+     * size, so it can be kept instead of opened again.
+     *
+     * @param file
+     *            the file
+     * @param size
+     *            the size of the ring in bytes
+     * @return <code>true</code> if the store is mapped to this file
+     */
+    boolean isMappedTo(File file, int size) {
+        return file.equals(this.file) && buffer.capacity() == size - size % SLOT_SIZE;
+    }
+
+    /**
+     * Sets the maximum number of entries, applied when reading them.
+     *
+     * @param capacity
+     *            the maximum number of entries, 0 or less for no limit
+     */
+    void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Marks a mapped store as closed, so the next process does not report
+     * its entries as recovered. Nothing to do if the store is not mapped.
+     */
+    void close() {
+        if (header != null) {
+            header.put(STATE_OFFSET, CLOSED);
+        }
+    }
+
+    public void add(int level, long time, String tag, String message, Throwable error) {
+        // The dictionary is not persisted, mapped stores write the tags.
+        int tagId = header == null ? getTagId(tag) : -1;
+        byte[] tagBytes = tagId < 0 ? truncate(encode(tag)) : NO_BYTES;
+        byte[] messageBytes = encode(message);
+        byte[] summaryBytes = error == null ? NO_BYTES : truncate(encode(error.toString()));
+        int length = tagBytes.length + messageBytes.length + summaryBytes.length;
+        int n = slotsOf(length);
+        if (n > slots) {
+            // Cannot fit, even in the empty ring.
+            return;
+        }
+
+        long first = next.getAndAdd(n);
+        for (int i = 0; i < n; i++) {
+            if (!claim(first + i)) {
+                // Lapped by later writers, release the claimed slots.
+                for (int j = 0; j < i; j++) {
+                    buffer.put(offset(first + j) + KIND, EMPTY);
+                    publish(first + j);
+                }
+                return;
+            }
+        }
+
+        int errorIndex = -1;
+        if (error != null) {
+            errorIndex = (int) (nextError.getAndIncrement() % MAX_ERRORS);
+            errors.set(errorIndex, new ErrorRef(first, error));
+        }
+        int offset = offset(first);
+        buffer.put(offset + KIND, FIRST);
+        buffer.put(offset + LEVEL, (byte) level);
+        buffer.put(offset + ERROR, (byte) errorIndex);
+        buffer.putShort(offset + TAG_ID, (short) tagId);
+        buffer.putLong(offset + TIME, time);
+        buffer.putShort(offset + TAG_LENGTH, (short) tagBytes.length);
+        buffer.putInt(offset + MESSAGE_LENGTH, messageBytes.length);
+        buffer.putShort(offset + SUMMARY_LENGTH, (short) summaryBytes.length);
+        for (int i = 1; i < n; i++) {
+            buffer.put(offset(first + i) + KIND, NEXT);
+        }
+        ByteBuffer out = buffer.duplicate();
+        Cursor cursor = new Cursor(first);
+        cursor.put(out, tagBytes);
+        cursor.put(out, messageBytes);
+        cursor.put(out, summaryBytes);
+
+        // The first slot last, so readers find a complete entry.
+        for (int i = n - 1; i >= 0; i--) {
+            publish(first + i);
+        }
+    }
+
+    public List<String> getEntries() {
+        EntryList entries = new EntryList();
+        accept(entries);
+        return entries;
+    }
+
+    /**
+     * Visits the entries, oldest first. The entries overwritten while read
+     * are skipped.
+     *
+     * @param visitor
+     *            the visitor
+     */
+    public void accept(EntryVisitor visitor) {
+        int capacity = this.capacity;
+        LinkedList<LogEvent> events = new LinkedList<LogEvent>();
+        ByteBuffer in = buffer.duplicate();
+        long end = next.get();
+        long sequence = Math.max(0, end - slots);
+        while (sequence < end) {
+            int n = read(in, sequence, events);
+            if (capacity > 0 && events.size() > capacity) {
+                events.removeFirst();
+            }
+            sequence += Math.max(1, n);
+        }
+        EntryRenderer renderer = new EntryRenderer();
+        for (LogEvent event : events) {
+            visitor.visit(renderer.render(event));
+        }
+    }
+
+    /**
+     * Reads the entry starting at the given sequence number.
+     *
+     * @param in
+     *            a duplicate of the ring
+     * @param sequence
+     *            the sequence number
+     * @param events
+     *            the list receiving the entry
+     * @return the number of slots of the entry, 0 if there is no complete
+     *         entry starting at this sequence number
+     */
+    private int read(ByteBuffer in, long sequence, List<LogEvent> events) {
+        int index = (int) (sequence % slots);
+        int offset = index * SLOT_SIZE;
+        if (published.get(index) != sequence + 1 || in.get(offset + KIND) != FIRST) {
+            return 0;
+        }
+        int level = in.get(offset + LEVEL);
+        int errorIndex = in.get(offset + ERROR);
+        int tagId = in.getShort(offset + TAG_ID);
+        long time = in.getLong(offset + TIME);
+        int tagLength = in.getShort(offset + TAG_LENGTH) & MAX_SHORT_LENGTH;
+        int messageLength = in.getInt(offset + MESSAGE_LENGTH);
+        int summaryLength = in.getShort(offset + SUMMARY_LENGTH) & MAX_SHORT_LENGTH;
+        int n = messageLength < 0 ? 0 : slotsOf((long) tagLength + messageLength + summaryLength);
+        if (n < 1 || n > slots || errorIndex >= MAX_ERRORS || tagId >= tags.length()) {
+            // Overwritten while read, or corrupted in a recovered file.
+            return 0;
+        }
+        byte[] data = new byte[tagLength + messageLength + summaryLength];
+        new Cursor(sequence).get(in, data);
+        for (int i = 0; i < n; i++) {
+            if (published.get((int) ((sequence + i) % slots)) != sequence + i + 1) {
+                return 0;
+            }
+        }
+
+        String tag = tagId >= 0 ? tags.get(tagId) : decode(data, 0, tagLength);
+        String message = decode(data, tagLength, messageLength);
+        Throwable error = null;
+        if (errorIndex >= 0) {
+            ErrorRef ref = errors.get(errorIndex);
+            if (ref != null && ref.sequence == sequence) {
+                error = ref.error;
+            } else {
+                // Only the summary is left.
+                message += '\n' + decode(data, tagLength + messageLength, summaryLength);
+            }
+        }
+        events.add(new LogEvent(sequence, level, time, tag, message, error));
+        return n;
+    }
+
+    /**
+     * Claims a slot for writing, the most recent sequence winning, see
+     * {@link LogEntryBuffer}.
+     *
+     * @param sequence
+     *            the sequence number of the slot
+     * @return <code>true</code> if claimed, <code>false</code> if lapped
+     */
+    private boolean claim(long sequence) {
+        int index = (int) (sequence % slots);
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            long current = published.get(index);
+            if (current == WRITING) {
+                Thread.yield();
+            } else if (current > sequence) {
+                return false;
+            } else if (published.compareAndSet(index, current, WRITING)) {
+                if (header != null) {
+                    // So a process dying while writing leaves no stale marker.
+                    buffer.putLong(index * SLOT_SIZE + MARKER, WRITING);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Publishes a slot once written.
+     *
+     * @param sequence
+     *            the sequence number of the slot
+     */
+    private void publish(long sequence) {
+        int index = (int) (sequence % slots);
+        buffer.putLong(index * SLOT_SIZE + MARKER, sequence + 1);
+        published.set(index, sequence + 1);
+    }
+
+    private int offset(long sequence) {
+        return (int) (sequence % slots) * SLOT_SIZE;
+    }
+
+    /**
+     * Computes the number of slots of an entry.
+     *
+     * @param length
+     *            the length of the data of the entry
+     * @return the number of slots
+     */
+    private static int slotsOf(long length) {
+        long rest = length - (SLOT_SIZE - FIRST_DATA);
+        if (rest <= 0) {
+            return 1;
+        }
+        long n = 1 + (rest + SLOT_SIZE - DATA - 1) / (SLOT_SIZE - DATA);
+        return (int) Math.min(n, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the id of a tag, adding it to the dictionary if there is room.
+     *
+     * @param tag
+     *            the tag
+     * @return the id, or -1 if the tag is not in the dictionary
+     */
+    private int getTagId(String tag) {
+        if (tag == null) {
+            return -1;
+        }
+        Integer id = tagIds.get(tag);
+        if (id != null) {
+            return id;
+        }
+        synchronized (tagIds) {
+            id = tagIds.get(tag);
+            if (id == null) {
+                if (tagIds.size() >= MAX_TAGS) {
+                    return -1;
+                }
+                id = tagIds.size();
+                // Set before publishing the id, so readers find the tag.
+                tags.set(id, tag);
+                tagIds.put(tag, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Truncates encoded bytes to {@link #MAX_SHORT_LENGTH}, on a character
+     * boundary.
+     *
+     * @param bytes
+     *            the UTF-8 bytes
+     * @return the bytes, or a truncated copy
+     */
+    private static byte[] truncate(byte[] bytes) {
+        if (bytes.length <= MAX_SHORT_LENGTH) {
+            return bytes;
+        }
+        int length = MAX_SHORT_LENGTH;
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            // Continuation byte of the cut character.
+            length--;
+        }
+        byte[] truncated = new byte[length];
+        System.arraycopy(bytes, 0, truncated, 0, length);
+        return truncated;
+    }
+
+    private static byte[] encode(String s) {
+        try {
+            return String.valueOf(s).getBytes(UTF_8);
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always supported.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decode(byte[] bytes, int offset, int length) {
+        try {
+            return new String(bytes, offset, length, UTF_8);
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always supported.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Position in the data of an entry spread over its slots. Slots never
+     * cross the end of the ring, so each slot is copied at once.
+     */
+    private final class Cursor {
+
+        private long sequence;
+
+        private int position = FIRST_DATA;
+
+        Cursor(long sequence) {
+            this.sequence = sequence;
+        }
+
+        /**
+         * Writes bytes at the cursor.
+         */
+        void put(ByteBuffer out, byte[] bytes) {
+            int done = 0;
+            while (done < bytes.length) {
+                int length = Math.min(bytes.length - done, SLOT_SIZE - position);
+                out.position(offset(sequence) + position);
+                out.put(bytes, done, length);
+                advance(length);
+                done += length;
+            }
+        }
+
+        /**
+         * Reads bytes at the cursor.
+         */
+        void get(ByteBuffer in, byte[] bytes) {
+            int done = 0;
+            while (done < bytes.length) {
+                int length = Math.min(bytes.length - done, SLOT_SIZE - position);
+                in.position(offset(sequence) + position);
+                in.get(bytes, done, length);
+                advance(length);
+                done += length;
+            }
+        }
+
+        private void advance(int length) {
+            position += length;
+            if (position == SLOT_SIZE) {
+                sequence++;
+                position = DATA;
+            }
+        }
+    }
+
+    /**
+     * An error kept in the heap and the sequence number of its entry.
+     */
+    private static final class ErrorRef {
+
+        final long sequence;
+
+        final Throwable error;
+
+        ErrorRef(long sequence, Throwable error) {
+            this.sequence = sequence;
+            this.error = error;
+        }
+    }
+
+}
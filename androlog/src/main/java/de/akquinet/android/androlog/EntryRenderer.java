@@ -0,0 +1,88 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Renders the entries of a report, oldest first. The stack trace of each
+ * distinct error is rendered once: an error with the same
+ * {@link ThrowableFingerprint} as an error of a previous entry is rendered
+ * as a single line, <code>same as entry #N</code>, <code>N</code> being the
+ * index of the previous entry in the report.
+ */
+class EntryRenderer {
+
+    /**
+     * The index of the first entry with each error instance, so errors
+     * logged several times are only fingerprinted once.
+     */
+    private final Map<Throwable, Integer> instances = new IdentityHashMap<Throwable, Integer>();
+
+    /**
+     * The index of the first entry with each stack trace.
+     */
+    private final Map<ThrowableFingerprint, Integer> traces = new HashMap<ThrowableFingerprint, Integer>();
+
+    /**
+     * The index of the next entry.
+     */
+    private int index;
+
+    /**
+     * Renders the next entry of the report.
+     *
+     * @param event
+     *            the event
+     * @return the text of the entry
+     */
+    String render(LogEvent event) {
+        int current = index++;
+        Throwable error = event.error;
+        String trace = null;
+        if (error != null) {
+            Integer first = instances.get(error);
+            if (first == null) {
+                ThrowableFingerprint fingerprint = new ThrowableFingerprint(error);
+                first = traces.get(fingerprint);
+                if (first == null) {
+                    first = current;
+                    traces.put(fingerprint, first);
+                }
+                instances.put(error, first);
+            }
+            if (first == current) {
+                trace = renderTrace(error);
+            } else {
+                trace = error + "\n\t(same as entry #" + first + ")";
+            }
+        }
+        return LogHelper.format(event.level, event.tag, event.message, trace, event.time);
+    }
+
+    /**
+     * Renders the full stack trace of an error.
+     *
+     * @param error
+     *            the error
+     * @return the stack trace
+     */
+    String renderTrace(Throwable error) {
+        return LogHelper.getStackTraceString(error);
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.List;
+
+/**
+ * Stores the log entries collected for the reports. Implementations are
+ * thread safe and do not block the logging threads.
+ */
+interface EntryStore {
+
+    /**
+     * Adds an entry, evicting older entries if the store is full.
+     *
+     * @param level
+     *            the log level
+     * @param time
+     *            the time of the log call in milliseconds, negative to omit
+     *            the timestamp
+     * @param tag
+     *            the tag
+     * @param message
+     *            the message
+     * @param error
+     *            the error, can be <code>null</code>
+     */
+    void add(int level, long time, String tag, String message, Throwable error);
+
+    /**
+     * Gets a copy of the entries rendered as text, oldest first.
+     *
+     * @return the entries
+     */
+    List<String> getEntries();
+
+    /**
+     * Renders the entries and passes them to a visitor one at a time, oldest
+     * first, without copying the store. The store is not locked while the
+     * visitor runs: entries added during the walk may or may not be visited,
+     * and an entry is either visited with all its fields or skipped.
+     *
+     * @param visitor
+     *            the visitor
+     */
+    void accept(EntryVisitor visitor);
+
+}
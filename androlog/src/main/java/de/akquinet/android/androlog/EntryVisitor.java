@@ -0,0 +1,31 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+/**
+ * Receives the log entries collected for the reports, oldest first, as they
+ * are read from the store. See {@link Log#visitReportedEntries(EntryVisitor)}.
+ */
+public interface EntryVisitor {
+
+    /**
+     * Visits an entry.
+     *
+     * @param entry
+     *            the entry rendered as text
+     */
+    void visit(String entry);
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+/**
+ * A log message built on demand. The log methods taking a
+ * {@link LazyMessage} first check the log level and whether the message has
+ * to be collected for the reports, and call {@link #build()} only if the
+ * message is actually used:
+ * <pre>
+ * Log.d(TAG, new LazyMessage() {
+ *     public String build() {
+ *         return "state: " + state + " items: " + items;
+ *     }
+ * });
+ * </pre>
+ */
+public interface LazyMessage {
+
+    /**
+     * Builds the message. Called at most once per log call.
+     *
+     * @return the message
+     */
+    public abstract String build();
+
+}
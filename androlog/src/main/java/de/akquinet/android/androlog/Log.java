@@ -14,21 +14,19 @@
  */
 package de.akquinet.android.androlog;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import android.content.Context;
 import de.akquinet.android.androlog.reporter.EnhancedReporter;
 import de.akquinet.android.androlog.reporter.Report;
-import de.akquinet.android.androlog.reporter.ReportFactory;
 import de.akquinet.android.androlog.reporter.Reporter;
 import de.akquinet.android.androlog.reporter.InstanceFactory;
 
@@ -53,21 +51,6 @@ import de.akquinet.android.androlog.reporter.InstanceFactory;
  */
 public class Log {
 
-    /**
-     * Global activation flag.
-     */
-    private static boolean activated = true;
-
-    /**
-     * Default log level.
-     */
-    private static int defaultLogLevel = Constants.INFO;
-
-    /**
-     * Default report level.
-     */
-    private static int defaultReportLevel = Constants.INFO;
-
     /**
      * Android Log wtf method. wtf(String tag, String msg)
      */
@@ -84,74 +67,33 @@ public class Log {
     private static Method wtfTagMessageErrorMethod;
 
     /**
-     * Sets to true if the wtf method delegates on the Android Log wtf methods
-     * which may cause the process to terminate.
-     */
-    private static boolean useWTF;
-
-    /**
-     * The list of log entries
-     */
-    private static List<String> entries;
-
-    /**
-     * Flag enabling / Disabling the log entry collection.
-     */
-    private static boolean enableLogEntryCollection;
-
-    /**
-     * Maximum number of entry to store.
-     */
-    private static int maxOfEntriesInReports;
-
-    /**
-     * Flag indicating if the reporting is activated.
-     */
-    private static boolean reportingActivated;
-
-    /**
-     * <code>true</code> if logs collected for the report should have a timestamp added, <code>false</code> otherwise.
-     * may be expensive since there's no thread-safe formatter :-(
+     * The current configuration. Log calls read this field once and work on
+     * the returned snapshot, configuration changes replace it while holding
+     * {@link #configurationLock}.
      */
-    private static boolean addTimestampToReportLogs;
-    
-    /**
-     * The list of reporters.
-     */
-    private static List<Reporter> reporters = new ArrayList<Reporter>(0);
-    
-    /**
-     * The report factory; must be set to use {@link EnhancedReporter#send(Context, Report)}, or <code>null</code> to
-     * use the default & call {@link Reporter#send(Context, String, Throwable)}
-     */
-    private static ReportFactory reportFactory;
+    private static volatile LogConfiguration currentConfiguration = new LogConfiguration.Builder().build();
 
     /**
-     * The Android context.
+     * The result of the last report.
      */
-    private static Context context;
+    private static volatile ReportResult lastReportResult;
 
     /**
-     * Map storing the log levels.
+     * The log entries of the report built by the current thread, when they
+     * are not read from the store. See {@link #visitReportedEntries(EntryVisitor)}.
      */
-    private static final Map<String, Integer> logLevels = new HashMap<String, Integer>();
+    private static final ThreadLocal<List<String>> reportedSnapshot = new ThreadLocal<List<String>>();
 
     /**
-     * Log level triggering reports
+     * Lock serializing the configuration changes.
      */
-    private static int reportTriggerLevel = Constants.ASSERT;
+    private static final Object configurationLock = new Object();
 
     /**
-     * Is the {@link UncaughtExceptionHandler} enabled ?
+     * The default {@link UncaughtExceptionHandler} replaced by Androlog.
+     * Changed while holding {@link #configurationLock}.
      */
-    private static boolean exceptionHandlerActivated = true;
-
-    /**
-     * Is the propagation to the default {@link UncaughtExceptionHandler}
-     * enabled ?
-     */
-    private static boolean exceptionHandlerPropagation = true;
-    private static UncaughtExceptionHandler originalHandler;
+    private static volatile UncaughtExceptionHandler originalHandler;
 
 
     /**
@@ -165,28 +107,44 @@ public class Log {
      * Activates the logging.
      */
     public static void activateLogging() {
-        activated = true;
+        synchronized (configurationLock) {
+            LogConfiguration.Builder builder = currentConfiguration.edit();
+            builder.activated = true;
+            currentConfiguration = builder.build();
+        }
     }
 
     /**
      * Deactivating the logging.
      */
     public static void deactivateLogging() {
-        activated = false;
+        synchronized (configurationLock) {
+            LogConfiguration.Builder builder = currentConfiguration.edit();
+            builder.activated = false;
+            currentConfiguration = builder.build();
+        }
     }
 
     /**
      * Activates the reporting.
      */
     public static void activateReporting() {
-        reportingActivated = true;
+        synchronized (configurationLock) {
+            LogConfiguration.Builder builder = currentConfiguration.edit();
+            builder.reportingActivated = true;
+            currentConfiguration = builder.build();
+        }
     }
 
     /**
      * Deactivating the reporting.
      */
     public static void deactivateReporting() {
-        reportingActivated = false;
+        synchronized (configurationLock) {
+            LogConfiguration.Builder builder = currentConfiguration.edit();
+            builder.reportingActivated = false;
+            currentConfiguration = builder.build();
+        }
     }
 
     /**
@@ -200,32 +158,49 @@ public class Log {
      *         enabled.
      */
     public static boolean setWTFDelegation(boolean delegation) {
-        // We can't enable the wtf delegation if we're on 1.6 or 2.0
-        if (wtfTagErrorMethod == null) {
-            useWTF = false;
-        } else {
-            useWTF = delegation;
+        synchronized (configurationLock) {
+            LogConfiguration.Builder builder = currentConfiguration.edit();
+            // We can't enable the wtf delegation if we're on 1.6 or 2.0
+            builder.useWTF = detectWTFMethods() && delegation;
+            currentConfiguration = builder.build();
+            return builder.useWTF;
+        }
+    }
+
+    /**
+     * Escapes the given class when computing the tag of the log methods
+     * without tag (such as {@link #d(String)}). Applications wrapping the
+     * Androlog methods in their own logging class use this method so the tag
+     * is the class calling the wrapper. The setting is cleared by
+     * {@link #reset()}.
+     *
+     * @param className
+     *            the qualified class name to escape
+     */
+    public static void addEscapedCallerClass(String className) {
+        synchronized (configurationLock) {
+            LogConfiguration.Builder builder = currentConfiguration.edit();
+            builder.escapedCallers.add(className);
+            currentConfiguration = builder.build();
         }
-        return useWTF;
     }
 
     /**
      * Resets the configuration.
      */
     public static void reset() {
-        deactivateLogging();
-        deactivateReporting();
-        defaultLogLevel = Constants.INFO;
-        defaultReportLevel = Constants.INFO;
-        detectWTFMethods();
-        logLevels.clear();
-        maxOfEntriesInReports = 25;
-        enableLogEntryCollection = false;
-        entries = null;
-        reporters.clear();
-        reportTriggerLevel = Constants.ASSERT;
-        Thread.setDefaultUncaughtExceptionHandler(originalHandler);
-        originalHandler = null;
+        synchronized (configurationLock) {
+            flushRepeats(currentConfiguration);
+            closeEntries(currentConfiguration.entries);
+            shutdown(currentConfiguration.reportDispatcher);
+            LogConfiguration.Builder builder = new LogConfiguration.Builder();
+            builder.activated = false;
+            builder.reportingActivated = false;
+            builder.useWTF = detectWTFMethods();
+            currentConfiguration = builder.build();
+            Thread.setDefaultUncaughtExceptionHandler(originalHandler);
+            originalHandler = null;
+        }
     }
 
     /**
@@ -291,8 +266,11 @@ public class Log {
      */
     public static void init(Context context, String fileName) {
         reset();
-        Log.context = context;
-
+        synchronized (configurationLock) {
+            LogConfiguration.Builder builder = currentConfiguration.edit();
+            builder.context = context;
+            currentConfiguration = builder.build();
+        }
         String file = fileName != null && !fileName.endsWith(".properties") ? fileName + ".properties" : fileName;
         if (file == null && context != null) {
             file = context.getPackageName() + ".properties";
@@ -330,7 +308,11 @@ public class Log {
      *            the log level
      */
     public static void setDefaultLogLevel(int logLevel) {
-        defaultLogLevel = logLevel;
+        synchronized (configurationLock) {
+            LogConfiguration.Builder builder = currentConfiguration.edit();
+            builder.defaultLogLevel = logLevel;
+            currentConfiguration = builder.build();
+        }
     }
 
     /**
@@ -340,7 +322,11 @@ public class Log {
      *            the report level
      */
     public static void setDefaultReportLevel(int logLevel) {
-        defaultReportLevel = logLevel;
+        synchronized (configurationLock) {
+            LogConfiguration.Builder builder = currentConfiguration.edit();
+            builder.defaultReportLevel = logLevel;
+            currentConfiguration = builder.build();
+        }
     }
 
     /**
@@ -349,7 +335,7 @@ public class Log {
      * @return the log level
      */
     public static int getDefaultLogLevel() {
-        return defaultLogLevel;
+        return currentConfiguration.defaultLogLevel;
     }
 
     /**
@@ -358,140 +344,332 @@ public class Log {
      * @return the log level
      */
     public static int getDefaultReportLevel() {
-        return defaultReportLevel;
+        return currentConfiguration.defaultReportLevel;
     }
 
     /**
-     * Configures the logger with the given properties.
+     * Configures the logger with the given properties. The resulting
+     * configuration is published at once, threads logging concurrently see
+     * either the previous or the new configuration.
      *
      * @param configuration
      *            the configuration
      */
     public static void configure(Properties configuration) {
+        List<String> recovered = null;
+        synchronized (configurationLock) {
+            // Summarized first, the collapser may be replaced.
+            flushRepeats(currentConfiguration);
+            LogConfiguration.Builder builder = currentConfiguration.edit();
+
+            boolean activate = "true".equalsIgnoreCase(configuration
+                    .getProperty(Constants.ANDROLOG_ACTIVE));
+            if (activate) {
+                builder.activated = true;
+            }
 
-        boolean activate = "true".equalsIgnoreCase(configuration
-                .getProperty(Constants.ANDROLOG_ACTIVE));
-        if (activate) {
-            activateLogging();
-        }
+            boolean activate4Report = "true".equalsIgnoreCase(configuration
+                    .getProperty(Constants.ANDROLOG_REPORT_ACTIVE));
+            if (activate4Report) {
+                builder.reportingActivated = true;
+            }
 
-        boolean activate4Report = "true".equalsIgnoreCase(configuration
-                .getProperty(Constants.ANDROLOG_REPORT_ACTIVE));
-        if (activate4Report) {
-            activateReporting();
-        }
+            builder.useWTF = detectWTFMethods();
 
-        detectWTFMethods();
+            if (configuration.containsKey(Constants.ANDROLOG_DEFAULT_LEVEL)) {
+                String level = configuration.getProperty(Constants.ANDROLOG_DEFAULT_LEVEL);
+                builder.defaultLogLevel = LogHelper.getLevel(level, builder.defaultLogLevel);
+            }
 
-        if (configuration.containsKey(Constants.ANDROLOG_DEFAULT_LEVEL)) {
-            String level = configuration.getProperty(Constants.ANDROLOG_DEFAULT_LEVEL);
-            defaultLogLevel = LogHelper.getLevel(level, defaultLogLevel);
-        }
+            if (configuration.containsKey(Constants.ANDROLOG_REPORT_DEFAULT_LEVEL)) {
+                String level = configuration
+                        .getProperty(Constants.ANDROLOG_REPORT_DEFAULT_LEVEL);
+                builder.defaultReportLevel = LogHelper.getLevel(level, builder.defaultReportLevel);
+            }
 
-        if (configuration.containsKey(Constants.ANDROLOG_REPORT_DEFAULT_LEVEL)) {
-            String level = configuration
-                    .getProperty(Constants.ANDROLOG_REPORT_DEFAULT_LEVEL);
-            defaultReportLevel = LogHelper.getLevel(level, defaultReportLevel);
-        }
+            @SuppressWarnings("unchecked")
+            Enumeration<String> names = (Enumeration<String>) configuration
+                    .propertyNames();
+            while (names.hasMoreElements()) {
+                String name = names.nextElement();
+                if (!name.startsWith(Constants.ANDROLOG_PREFIX)) {
+                    String level = configuration.getProperty(name);
+                    int log = LogHelper.getLevel(level, builder.defaultLogLevel);
+                    builder.logLevels.put(name, log);
+                } else if (name.startsWith(Constants.ANDROLOG_RATELIMIT_PREFIX)) {
+                    RateLimiter limiter = RateLimiter.parse(configuration.getProperty(name));
+                    if (limiter != null) {
+                        builder.rateLimits.put(
+                                name.substring(Constants.ANDROLOG_RATELIMIT_PREFIX.length()), limiter);
+                    }
+                }
+            }
 
-        @SuppressWarnings("unchecked")
-        Enumeration<String> names = (Enumeration<String>) configuration
-                .propertyNames();
-        while (names.hasMoreElements()) {
-            String name = names.nextElement();
-            if (!name.startsWith(Constants.ANDROLOG_PREFIX)) {
-                String level = configuration.getProperty(name);
-                int log = LogHelper.getLevel(level, defaultLogLevel);
-                logLevels.put(name, log);
+            if (configuration.containsKey(Constants.ANDROLOG_CALLER_ESCAPE)) {
+                String[] classes = configuration.getProperty(Constants.ANDROLOG_CALLER_ESCAPE).split(",");
+                for (String cn : classes) {
+                    if (cn.trim().length() > 0) {
+                        builder.escapedCallers.add(cn.trim());
+                    }
+                }
             }
-        }
 
-        if (useWTF) {
-            // Check if androlog configuration does not override this.
-            if (configuration.containsKey(Constants.ANDROLOG_DELEGATE_WTF)) {
-                String v = configuration.getProperty(Constants.ANDROLOG_DELEGATE_WTF);
-                // If androlog.delegate.wtf is set to true, we really call
-                // Log.wtf which
-                // may terminate the process.
-                useWTF = "true".equals(v.toLowerCase());
-                // In other cases, androlog does log a message in the Constants.ASSERT
-                // level.
+            if (configuration.containsKey(Constants.ANDROLOG_CALLER_DETAILS)) {
+                builder.callerDetails = "true".equalsIgnoreCase(configuration
+                        .getProperty(Constants.ANDROLOG_CALLER_DETAILS));
             }
-        }
 
-        // Do we need to store the log entries for Reports ?
-        enableLogEntryCollection = false;
-        if (context != null
-                && configuration.containsKey(Constants.ANDROLOG_REPORT_REPORTERS)) {
-            // We enable the collection only if we have reporters AND a valid
-            // context
-            String s = configuration.getProperty(Constants.ANDROLOG_REPORT_REPORTERS);
-            String[] senders = s.split(",");
-            for (String sender : senders) {
-                String cn = sender.trim();
-                Reporter reporter = InstanceFactory.newReporter(cn);
-                if (reporter != null) {
-                    reporter.configure(configuration);
-                    reporters.add(reporter);
+            if (configuration.containsKey(Constants.ANDROLOG_REPEAT_COLLAPSE)) {
+                if ("true".equalsIgnoreCase(configuration
+                        .getProperty(Constants.ANDROLOG_REPEAT_COLLAPSE))) {
+                    long timeout = RepeatCollapser.DEFAULT_TIMEOUT;
+                    if (configuration.containsKey(Constants.ANDROLOG_REPEAT_TIMEOUT)) {
+                        String t = configuration.getProperty(Constants.ANDROLOG_REPEAT_TIMEOUT);
+                        timeout = Long.parseLong(t.trim());
+                    }
+                    builder.repeatCollapser = new RepeatCollapser(timeout);
+                } else {
+                    builder.repeatCollapser = null;
                 }
             }
 
-            // Configure the UncaughtExceptionHandler
-            if (configuration.containsKey(Constants.ANDROLOG_REPORT_EXCEPTION_HANDLER)
-                    && "false".equals(configuration.getProperty(Constants.ANDROLOG_REPORT_EXCEPTION_HANDLER))) {
-                exceptionHandlerActivated = false;
+            if (configuration.containsKey(Constants.ANDROLOG_TAG_ABBREVIATE)) {
+                builder.abbreviateTags = "true".equalsIgnoreCase(configuration
+                        .getProperty(Constants.ANDROLOG_TAG_ABBREVIATE));
             }
 
-            if (configuration.containsKey(Constants.ANDROLOG_REPORT_EXCEPTION_HANDLER_PROPAGATION)
-                    && "false".equals(configuration.getProperty(Constants.ANDROLOG_REPORT_EXCEPTION_HANDLER_PROPAGATION))) {
-                exceptionHandlerPropagation = false;
+            if (builder.useWTF) {
+                // Check if androlog configuration does not override this.
+                if (configuration.containsKey(Constants.ANDROLOG_DELEGATE_WTF)) {
+                    String v = configuration.getProperty(Constants.ANDROLOG_DELEGATE_WTF);
+                    // If androlog.delegate.wtf is set to true, we really call
+                    // Log.wtf which
+                    // may terminate the process.
+                    builder.useWTF = "true".equals(v.toLowerCase());
+                    // In other cases, androlog does log a message in the Constants.ASSERT
+                    // level.
+                }
             }
 
-            // Define an default error handler, reporting the error.
-            if (exceptionHandlerActivated) {
-                originalHandler = Thread.getDefaultUncaughtExceptionHandler();
-                Thread.setDefaultUncaughtExceptionHandler(new UncaughtExceptionHandler() {
-                    @Override
-                    public void uncaughtException(Thread arg0, Throwable arg1) {
-                        report("Uncaught Exception", arg1);
-                        // If there is a original handler, propagate the exception.
-                        if (exceptionHandlerPropagation  && originalHandler != null) {
-                            originalHandler.uncaughtException(arg0, arg1);
+            // Do we need to store the log entries for Reports ?
+            builder.enableLogEntryCollection = false;
+            if (builder.context != null
+                    && configuration.containsKey(Constants.ANDROLOG_REPORT_REPORTERS)) {
+                // We enable the collection only if we have reporters AND a valid
+                // context
+                String s = configuration.getProperty(Constants.ANDROLOG_REPORT_REPORTERS);
+                String[] senders = s.split(",");
+                for (String sender : senders) {
+                    String cn = sender.trim();
+                    Reporter reporter = InstanceFactory.newReporter(cn);
+                    if (reporter != null) {
+                        reporter.configure(configuration);
+                        builder.reporters.add(reporter);
+                        String t = configuration.getProperty(Constants.ANDROLOG_REPORT_TIMEOUT + "." + cn);
+                        if (t != null) {
+                            builder.reporterTimeouts.put(cn, Long.parseLong(t.trim()));
                         }
                     }
-                });
+                }
+                if (configuration.containsKey(Constants.ANDROLOG_REPORT_TIMEOUT)) {
+                    String t = configuration.getProperty(Constants.ANDROLOG_REPORT_TIMEOUT);
+                    builder.reportTimeout = Long.parseLong(t.trim());
+                }
+
+                // Configure the UncaughtExceptionHandler
+                boolean exceptionHandlerActivated = true;
+                if (configuration.containsKey(Constants.ANDROLOG_REPORT_EXCEPTION_HANDLER)
+                        && "false".equals(configuration.getProperty(Constants.ANDROLOG_REPORT_EXCEPTION_HANDLER))) {
+                    exceptionHandlerActivated = false;
+                }
+
+                if (configuration.containsKey(Constants.ANDROLOG_REPORT_EXCEPTION_HANDLER_PROPAGATION)
+                        && "false".equals(configuration.getProperty(Constants.ANDROLOG_REPORT_EXCEPTION_HANDLER_PROPAGATION))) {
+                    builder.exceptionHandlerPropagation = false;
+                }
+
+                // Define an default error handler, reporting the error.
+                if (exceptionHandlerActivated) {
+                    originalHandler = Thread.getDefaultUncaughtExceptionHandler();
+                    Thread.setDefaultUncaughtExceptionHandler(new UncaughtExceptionHandler() {
+                        @Override
+                        public void uncaughtException(Thread arg0, Throwable arg1) {
+                            LogConfiguration config = currentConfiguration;
+                            boolean sent = report(config, "Uncaught Exception", arg1, null, null)
+                                    .isSuccessful();
+                            // If there is a original handler, propagate the exception.
+                            UncaughtExceptionHandler original = originalHandler;
+                            if (config.exceptionHandlerPropagation && original != null) {
+                                if (sent) {
+                                    // The process dies, its entries are not
+                                    // reported again as recovered.
+                                    closeEntries(config.entries);
+                                }
+                                original.uncaughtException(arg0, arg1);
+                            }
+                        }
+                    });
+                }
+
+                if (configuration.containsKey(Constants.ANDROLOG_REPORT_TRIGGER_LEVEL)) {
+                    String l = configuration.getProperty(Constants.ANDROLOG_REPORT_TRIGGER_LEVEL);
+                    builder.reportTriggerLevel = LogHelper.getLevel(l, builder.defaultReportLevel);
+                } else {
+                    builder.reportTriggerLevel = Constants.ASSERT;
+                }
+
+                if (configuration.containsKey(Constants.ANDROLOG_REPORT_FACTORY)) {
+                    s = configuration.getProperty(Constants.ANDROLOG_REPORT_FACTORY);
+                    builder.reportFactory = InstanceFactory.newReportFactory(s);
+                }
+
+                if ("true".equalsIgnoreCase(configuration
+                    .getProperty(Constants.ANDROLOG_REPORT_ADD_TIMESTAMP))) {
+                    builder.addTimestampToReportLogs = true;
+                }
+
+                builder.enableLogEntryCollection = true;
             }
 
-            if (configuration.containsKey(Constants.ANDROLOG_REPORT_TRIGGER_LEVEL)) {
-                String l = configuration.getProperty(Constants.ANDROLOG_REPORT_TRIGGER_LEVEL);
-                reportTriggerLevel = LogHelper.getLevel(l, defaultReportLevel);
-            } else {
-                reportTriggerLevel = Constants.ASSERT;
+            if (builder.enableLogEntryCollection) {
+                if (configuration.containsKey(Constants.ANDROLOG_REPORT_LOG_ITEMS)) {
+                    String p = configuration.getProperty(Constants.ANDROLOG_REPORT_LOG_ITEMS);
+                    builder.maxOfEntriesInReports = Integer.parseInt(p);
+                } else {
+                    builder.maxOfEntriesInReports = 25; // Default
+                }
+                EntryStore previous = builder.entries;
+                builder.entries = createEntryStore(configuration, builder);
+
+                int queue = ReportDispatcher.DEFAULT_CAPACITY;
+                if (configuration.containsKey(Constants.ANDROLOG_REPORT_QUEUE)) {
+                    String p = configuration.getProperty(Constants.ANDROLOG_REPORT_QUEUE);
+                    queue = Integer.parseInt(p.trim());
+                }
+                boolean dropOldest = "drop-oldest".equalsIgnoreCase(configuration
+                        .getProperty(Constants.ANDROLOG_REPORT_QUEUE_POLICY));
+                shutdown(builder.reportDispatcher);
+                builder.reportDispatcher = new ReportDispatcher(queue, dropOldest);
+
+                long coalesce = 0;
+                if (configuration.containsKey(Constants.ANDROLOG_REPORT_COALESCE_MS)) {
+                    String p = configuration.getProperty(Constants.ANDROLOG_REPORT_COALESCE_MS);
+                    coalesce = Long.parseLong(p.trim());
+                }
+                builder.reportCoalescer = coalesce > 0 ? new ReportCoalescer(coalesce) : null;
+                if (builder.entries != previous && builder.entries instanceof DirectEntryStore
+                        && ((DirectEntryStore) builder.entries).isRecovered()) {
+                    // Taken before going live, so the report only holds the
+                    // entries of the previous process.
+                    recovered = builder.entries.getEntries();
+                    builder.entries.add(Constants.WARN, -1, Log.class.getSimpleName(),
+                            "End of the log of a process which did not shut down", null);
+                }
             }
-            
-            if (configuration.containsKey(Constants.ANDROLOG_REPORT_FACTORY)) {
-                s = configuration.getProperty(Constants.ANDROLOG_REPORT_FACTORY);
-                reportFactory = InstanceFactory.newReportFactory(s);
+
+            currentConfiguration = builder.build();
+        }
+
+        if (recovered != null) {
+            reportInBackground("Log recovered from a previous process", recovered);
+        }
+    }
+
+    /**
+     * Creates the store of the log entries collected for the reports. A
+     * mapped store is kept if it is mapped to the same file with the same
+     * size, otherwise the previous store is closed.
+     *
+     * @param configuration
+     *            the configuration
+     * @param builder
+     *            the configuration being built, holding the number of entries
+     *            and the previous store
+     * @return the store
+     */
+    private static EntryStore createEntryStore(Properties configuration,
+            LogConfiguration.Builder builder) {
+        // Without explicit number of entries, only the size limits apply.
+        int items = configuration.containsKey(Constants.ANDROLOG_REPORT_LOG_ITEMS)
+                ? builder.maxOfEntriesInReports : 0;
+
+        long mapped = LogHelper.parseSize(configuration
+                .getProperty(Constants.ANDROLOG_REPORT_LOG_MAPPED));
+        File file = null;
+        String process = mapped > 0 && mapped <= Integer.MAX_VALUE ? LogHelper
+                .getProcessName(builder.context) : null;
+        // Without the process name, the file may be the one of another process.
+        if (process != null) {
+            file = new File(builder.context.getFilesDir(), DirectEntryStore.getFileName(
+                    builder.context.getPackageName(), process));
+            if (builder.entries instanceof DirectEntryStore
+                    && ((DirectEntryStore) builder.entries).isMappedTo(file, (int) mapped)) {
+                DirectEntryStore kept = (DirectEntryStore) builder.entries;
+                kept.setCapacity(items);
+                return kept;
             }
-            
-            if ("true".equalsIgnoreCase(configuration
-                .getProperty(Constants.ANDROLOG_REPORT_ADD_TIMESTAMP))) {
-                addTimestampToReportLogs = true;
+        }
+
+        // The file of a mapped store may be opened again, so closed first.
+        closeEntries(builder.entries);
+        if (file != null) {
+            try {
+                return DirectEntryStore.open(file, (int) mapped, items);
+            } catch (IOException e) {
+                // Use one of the in-memory stores.
             }
-            
-            enableLogEntryCollection = true;
         }
 
-        if (enableLogEntryCollection) {
-            if (configuration.containsKey(Constants.ANDROLOG_REPORT_LOG_ITEMS)) {
-                String p = configuration.getProperty(Constants.ANDROLOG_REPORT_LOG_ITEMS);
-                maxOfEntriesInReports = Integer.parseInt(p);
-            } else {
-                maxOfEntriesInReports = 25; // Default
+        long direct = LogHelper.parseSize(configuration
+                .getProperty(Constants.ANDROLOG_REPORT_LOG_DIRECT));
+        if (direct > 0 && direct <= Integer.MAX_VALUE) {
+            return new DirectEntryStore((int) direct, items);
+        }
+
+        long budget = LogHelper.parseSize(configuration
+                .getProperty(Constants.ANDROLOG_REPORT_LOG_BYTES));
+        if (budget > 0) {
+            return new BudgetEntryStore(budget, items);
+        }
+
+        TieredEntryStore tiered = TieredEntryStore.parse(configuration
+                .getProperty(Constants.ANDROLOG_REPORT_LOG_TIERS));
+        if (tiered != null) {
+            return tiered;
+        }
+
+        if (configuration.containsKey(Constants.ANDROLOG_REPORT_LOG_THREAD_ITEMS)) {
+            String p = configuration.getProperty(Constants.ANDROLOG_REPORT_LOG_THREAD_ITEMS);
+            int threadItems = Integer.parseInt(p.trim());
+            if (threadItems > 0) {
+                return new ThreadEntryStore(threadItems, builder.maxOfEntriesInReports);
             }
-            entries = new ArrayList<String>(maxOfEntriesInReports);
         }
+        return new LogEntryBuffer(builder.maxOfEntriesInReports);
+    }
+
+    /**
+     * Closes a store of log entries if it needs to.
+     *
+     * @param entries
+     *            the store, can be <code>null</code>
+     */
+    private static void closeEntries(EntryStore entries) {
+        if (entries instanceof DirectEntryStore) {
+            ((DirectEntryStore) entries).close();
+        }
+    }
 
+    /**
+     * Shuts a report dispatcher down, its pending reports are still sent.
+     *
+     * @param dispatcher
+     *            the dispatcher, can be <code>null</code>
+     */
+    private static void shutdown(ReportDispatcher dispatcher) {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
     }
 
     /**
@@ -499,8 +677,10 @@ public class Log {
      * (Android 2.2+). In that case, the delegation to those method is enabled.
      * If not, calling {@link Log#wtf(Object, String)} log a message with the
      * level {@link Log#Constants.ASSERT}
+     *
+     * @return <code>true</code> if the <code>wtf</code> methods are available
      */
-    private static void detectWTFMethods() {
+    private static boolean detectWTFMethods() {
         // Check if wtf exists (android 2.2+)
         // static int wtf(String tag, String msg)
         // static int wtf(String tag, Throwable tr)
@@ -513,10 +693,10 @@ public class Log {
             wtfTagMessageErrorMethod = android.util.Log.class
                     .getMethod("wtf", new Class[] { String.class, String.class,
                             Throwable.class });
-            useWTF = true;
+            return true;
         } catch (Exception e) {
             // wtf is not defined, will use Constants.ASSERT level.
-            useWTF = false;
+            return false;
         }
     }
 
@@ -530,11 +710,7 @@ public class Log {
      *            The message you would like logged.
      */
     public static int v(String tag, String msg) {
-        collectLogEntry(Constants.VERBOSE, tag, msg, null);
-        if (isLoggable(tag, Constants.VERBOSE)) {
-            return android.util.Log.v(tag, msg);
-        }
-        return 0;
+        return log(currentConfiguration, Constants.VERBOSE, tag, msg, null);
     }
 
     /**
@@ -549,11 +725,7 @@ public class Log {
      *            An exception to log
      */
     public static int v(String tag, String msg, Throwable tr) {
-        collectLogEntry(Constants.VERBOSE, tag, msg, tr);
-        if (isLoggable(tag, Constants.VERBOSE)) {
-            return android.util.Log.v(tag, msg, tr);
-        }
-        return 0;
+        return log(currentConfiguration, Constants.VERBOSE, tag, msg, tr);
     }
 
     /**
@@ -565,10 +737,7 @@ public class Log {
      *            The message you would like logged.
      */
     public static int v(Object object, String msg) {
-        if (object != null) {
-            return v(object.getClass().getName(), msg);
-        }
-        return 0;
+        return log(currentConfiguration, Constants.VERBOSE, object, msg, null);
     }
 
     /**
@@ -578,16 +747,7 @@ public class Log {
      *            The message you would like logged.
      */
     public static int v(String msg) {
-        // This is a quick check to avoid the expensive stack trace reflection.
-        if (!activated) {
-            return 0;
-        }
-
-        String caller = LogHelper.getCaller();
-        if (caller != null) {
-            return v(caller, msg);
-        }
-        return 0;
+        return logFromCaller(Constants.VERBOSE, msg);
     }
 
     /**
@@ -599,14 +759,12 @@ public class Log {
      *            An exception to log
      */
     public static int v(Object object, String msg, Throwable tr) {
-        if (object != null) {
-            return v(object.getClass().getName(), msg, tr);
-        }
-        return 0;
+        return log(currentConfiguration, Constants.VERBOSE, object, msg, tr);
     }
 
     /**
-     * Send a {@link #Constants.DEBUG} log message.
+     * Send a {@link #VERBOSE} log message built on demand. The message is built
+     * only if it is logged or collected for the reports.
      *
      * @param tag
      *            Used to identify the source of a log message. It usually
@@ -614,16 +772,13 @@ public class Log {
      * @param msg
      *            The message you would like logged.
      */
-    public static int d(String tag, String msg) {
-        collectLogEntry(Constants.DEBUG, tag, msg, null);
-        if (isLoggable(tag, Constants.DEBUG)) {
-            return android.util.Log.d(tag, msg);
-        }
-        return 0;
+    public static int v(String tag, LazyMessage msg) {
+        return log(currentConfiguration, Constants.VERBOSE, tag, msg, null);
     }
 
     /**
-     * Send a {@link #Constants.DEBUG} log message and log the exception.
+     * Send a {@link #VERBOSE} log message built on demand and log the exception.
+     * The message is built only if it is logged or collected for the reports.
      *
      * @param tag
      *            Used to identify the source of a log message. It usually
@@ -633,65 +788,139 @@ public class Log {
      * @param tr
      *            An exception to log
      */
-    public static int d(String tag, String msg, Throwable tr) {
-        collectLogEntry(Constants.DEBUG, tag, msg, tr);
-        if (isLoggable(tag, Constants.DEBUG)) {
-            return android.util.Log.d(tag, msg, tr);
-        }
-        return 0;
+    public static int v(String tag, LazyMessage msg, Throwable tr) {
+        return log(currentConfiguration, Constants.VERBOSE, tag, msg, tr);
     }
 
     /**
-     * Send a {@link #Constants.DEBUG} log message.
+     * Send a {@link #VERBOSE} log message built from a pattern. Each <code>{}</code>
+     * placeholder of the pattern is replaced by the next argument. The message
+     * is built only if it is logged or collected for the reports.
      *
-     * @param object
-     *            The object logging this message.
-     * @param msg
-     *            The message you would like logged.
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param pattern
+     *            The message pattern.
+     * @param arg
+     *            The argument replacing the placeholder.
      */
-    public static int d(Object object, String msg) {
-        if (object != null) {
-            return d(object.getClass().getName(), msg);
-        }
-        return 0;
+    public static int v(String tag, String pattern, Object arg) {
+        return logPattern(Constants.VERBOSE, tag, pattern, arg);
     }
 
     /**
-     * Send a {@link #Constants.DEBUG} log message.
-     *
-     * @param msg
-     *            The message you would like logged.
+     * Send a {@link #VERBOSE} log message built from a pattern, see
+     * {@link #v(String, String, Object)}. The argument is
+     * appended without boxing.
      */
-    public static int d(String msg) {
-        // This is a quick check to avoid the expensive stack trace reflection.
-        if (!activated) {
-            return 0;
-        }
+    public static int v(String tag, String pattern, int arg) {
+        return logPattern(Constants.VERBOSE, tag, pattern, arg);
+    }
 
-        String caller = LogHelper.getCaller();
-        if (caller != null) {
-            return d(caller, msg);
-        }
-        return 0;
+    /**
+     * Send a {@link #VERBOSE} log message built from a pattern, see
+     * {@link #v(String, String, Object)}. The argument is
+     * appended without boxing.
+     */
+    public static int v(String tag, String pattern, long arg) {
+        return logPattern(Constants.VERBOSE, tag, pattern, arg);
     }
 
     /**
-     * Send a {@link #Constants.DEBUG} log message and log the exception.
+     * Send a {@link #VERBOSE} log message built from a pattern, see
+     * {@link #v(String, String, Object)}. The argument is
+     * appended without boxing. A <code>float</code> is widened to
+     * <code>double</code> and shows the digits of the double,
+     * <code>0.1f</code> giving <code>0.10000000149011612</code>.
+     */
+    public static int v(String tag, String pattern, double arg) {
+        return logPattern(Constants.VERBOSE, tag, pattern, arg);
+    }
+
+    /**
+     * Send a {@link #VERBOSE} log message built from a pattern, see
+     * {@link #v(String, String, Object)}. The argument is
+     * appended without boxing.
+     */
+    public static int v(String tag, String pattern, boolean arg) {
+        return logPattern(Constants.VERBOSE, tag, pattern, arg);
+    }
+
+    /**
+     * Send a {@link #VERBOSE} log message built from a pattern, see
+     * {@link #v(String, String, Object)}. The character is
+     * appended without boxing.
+     */
+    public static int v(String tag, String pattern, char arg) {
+        return logPattern(Constants.VERBOSE, tag, pattern, arg);
+    }
+
+    /**
+     * Send a {@link #VERBOSE} log message built from a pattern. Each <code>{}</code>
+     * placeholder of the pattern is replaced by the next argument. The message
+     * is built only if it is logged or collected for the reports. Primitive
+     * arguments are boxed, unless both are integers or both are floating point
+     * numbers: the <code>long</code> and <code>double</code> forms append them
+     * without boxing. Two <code>char</code> arguments are widened to
+     * <code>long</code> and appended as numbers, pass them as strings.
      *
-     * @param msg
-     *            The message you would like logged.
-     * @param tr
-     *            An exception to log
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param pattern
+     *            The message pattern.
+     * @param arg1
+     *            The argument replacing the first placeholder.
+     * @param arg2
+     *            The argument replacing the second placeholder.
+     */
+    public static int v(String tag, String pattern, Object arg1, Object arg2) {
+        return logPattern(Constants.VERBOSE, tag, pattern, arg1, arg2);
+    }
+
+    /**
+     * Send a {@link #VERBOSE} log message built from a pattern, see
+     * {@link #v(String, String, Object, Object)}. The arguments are
+     * appended without boxing.
      */
-    public static int d(Object object, String msg, Throwable tr) {
-        if (object != null) {
-            return d(object.getClass().getName(), msg, tr);
-        }
-        return 0;
+    public static int v(String tag, String pattern, long arg1, long arg2) {
+        return logPattern(Constants.VERBOSE, tag, pattern, arg1, arg2);
     }
 
     /**
-     * Send an {@link #Constants.INFO} log message.
+     * Send a {@link #VERBOSE} log message built from a pattern, see
+     * {@link #v(String, String, Object, Object)}. The arguments are
+     * appended without boxing.
+     */
+    public static int v(String tag, String pattern, double arg1, double arg2) {
+        return logPattern(Constants.VERBOSE, tag, pattern, arg1, arg2);
+    }
+
+    /**
+     * Send a {@link #VERBOSE} log message built from a pattern. Each <code>{}</code>
+     * placeholder of the pattern is replaced by the next argument. The message
+     * is built only if it is logged or collected for the reports. Primitive
+     * arguments are boxed.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param pattern
+     *            The message pattern.
+     * @param arg1
+     *            The argument replacing the first placeholder.
+     * @param arg2
+     *            The argument replacing the second placeholder.
+     * @param arg3
+     *            The argument replacing the third placeholder.
+     */
+    public static int v(String tag, String pattern, Object arg1, Object arg2, Object arg3) {
+        return logPattern(Constants.VERBOSE, tag, pattern, arg1, arg2, arg3);
+    }
+
+    /**
+     * Send a {@link #Constants.DEBUG} log message.
      *
      * @param tag
      *            Used to identify the source of a log message. It usually
@@ -699,16 +928,12 @@ public class Log {
      * @param msg
      *            The message you would like logged.
      */
-    public static int i(String tag, String msg) {
-        collectLogEntry(Constants.INFO, tag, msg, null);
-        if (isLoggable(tag, Constants.INFO)) {
-            return android.util.Log.i(tag, msg);
-        }
-        return 0;
+    public static int d(String tag, String msg) {
+        return log(currentConfiguration, Constants.DEBUG, tag, msg, null);
     }
 
     /**
-     * Send a {@link #Constants.INFO} log message and log the exception.
+     * Send a {@link #Constants.DEBUG} log message and log the exception.
      *
      * @param tag
      *            Used to identify the source of a log message. It usually
@@ -718,65 +943,47 @@ public class Log {
      * @param tr
      *            An exception to log
      */
-    public static int i(String tag, String msg, Throwable tr) {
-        collectLogEntry(Constants.INFO, tag, msg, tr);
-        if (isLoggable(tag, Constants.INFO)) {
-            return android.util.Log.i(tag, msg, tr);
-        }
-        return 0;
+    public static int d(String tag, String msg, Throwable tr) {
+        return log(currentConfiguration, Constants.DEBUG, tag, msg, tr);
     }
 
     /**
-     * Send a {@link #Constants.INFO} log message.
+     * Send a {@link #Constants.DEBUG} log message.
      *
      * @param object
      *            The object logging this message.
      * @param msg
      *            The message you would like logged.
      */
-    public static int i(Object object, String msg) {
-        if (object != null) {
-            return i(object.getClass().getName(), msg);
-        }
-        return 0;
+    public static int d(Object object, String msg) {
+        return log(currentConfiguration, Constants.DEBUG, object, msg, null);
     }
 
     /**
-     * Send a {@link #Constants.INFO} log message.
+     * Send a {@link #Constants.DEBUG} log message.
      *
      * @param msg
      *            The message you would like logged.
      */
-    public static int i(String msg) {
-        // This is a quick check to avoid the expensive stack trace reflection.
-        if (!activated) {
-            return 0;
-        }
-
-        String caller = LogHelper.getCaller();
-        if (caller != null) {
-            return i(caller, msg);
-        }
-        return 0;
+    public static int d(String msg) {
+        return logFromCaller(Constants.DEBUG, msg);
     }
 
     /**
-     * Send a {@link #Constants.INFO} log message and log the exception.
+     * Send a {@link #Constants.DEBUG} log message and log the exception.
      *
      * @param msg
      *            The message you would like logged.
      * @param tr
      *            An exception to log
      */
-    public static int i(Object object, String msg, Throwable tr) {
-        if (object != null) {
-            return i(object.getClass().getName(), msg, tr);
-        }
-        return 0;
+    public static int d(Object object, String msg, Throwable tr) {
+        return log(currentConfiguration, Constants.DEBUG, object, msg, tr);
     }
 
     /**
-     * Send a {@link #Constants.WARN} log message.
+     * Send a {@link #Constants.DEBUG} log message built on demand. The message is built
+     * only if it is logged or collected for the reports.
      *
      * @param tag
      *            Used to identify the source of a log message. It usually
@@ -784,16 +991,13 @@ public class Log {
      * @param msg
      *            The message you would like logged.
      */
-    public static int w(String tag, String msg) {
-        collectLogEntry(Constants.WARN, tag, msg, null);
-        if (isLoggable(tag, Constants.WARN)) {
-            return android.util.Log.w(tag, msg);
-        }
-        return 0;
+    public static int d(String tag, LazyMessage msg) {
+        return log(currentConfiguration, Constants.DEBUG, tag, msg, null);
     }
 
     /**
-     * Send a {@link #Constants.WARN} log message and log the exception.
+     * Send a {@link #Constants.DEBUG} log message built on demand and log the exception.
+     * The message is built only if it is logged or collected for the reports.
      *
      * @param tag
      *            Used to identify the source of a log message. It usually
@@ -803,78 +1007,139 @@ public class Log {
      * @param tr
      *            An exception to log
      */
-    public static int w(String tag, String msg, Throwable tr) {
-        collectLogEntry(Constants.WARN, tag, msg, tr);
-        if (isLoggable(tag, Constants.WARN)) {
-            return android.util.Log.w(tag, msg, tr);
-        }
-        return 0;
+    public static int d(String tag, LazyMessage msg, Throwable tr) {
+        return log(currentConfiguration, Constants.DEBUG, tag, msg, tr);
     }
 
     /**
-     * Send a {@link #Constants.WARN} log message.
+     * Send a {@link #Constants.DEBUG} log message built from a pattern. Each <code>{}</code>
+     * placeholder of the pattern is replaced by the next argument. The message
+     * is built only if it is logged or collected for the reports.
      *
-     * @param object
-     *            The object logging this message.
-     * @param msg
-     *            The message you would like logged.
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param pattern
+     *            The message pattern.
+     * @param arg
+     *            The argument replacing the placeholder.
      */
-    public static int w(Object object, String msg) {
-        if (object != null) {
-            return w(object.getClass().getName(), msg);
-        }
-        return 0;
+    public static int d(String tag, String pattern, Object arg) {
+        return logPattern(Constants.DEBUG, tag, pattern, arg);
     }
 
     /**
-     * Send a {@link #Constants.WARN} log message.
-     *
-     * @param msg
-     *            The message you would like logged.
+     * Send a {@link #Constants.DEBUG} log message built from a pattern, see
+     * {@link #d(String, String, Object)}. The argument is
+     * appended without boxing.
      */
-    public static int w(String msg) {
-        // This is a quick check to avoid the expensive stack trace reflection.
-        if (!activated) {
-            return 0;
-        }
-        String caller = LogHelper.getCaller();
-        if (caller != null) {
-            return w(caller, msg);
-        }
-        return 0;
+    public static int d(String tag, String pattern, int arg) {
+        return logPattern(Constants.DEBUG, tag, pattern, arg);
     }
 
     /**
-     * Send a {@link #Constants.WARN} log message and log the exception.
-     *
-     * @param msg
-     *            The message you would like logged.
-     * @param tr
-     *            An exception to log
+     * Send a {@link #Constants.DEBUG} log message built from a pattern, see
+     * {@link #d(String, String, Object)}. The argument is
+     * appended without boxing.
      */
-    public static int w(Object object, String msg, Throwable tr) {
-        if (object != null) {
-            return w(object.getClass().getName(), msg, tr);
-        }
-        return 0;
+    public static int d(String tag, String pattern, long arg) {
+        return logPattern(Constants.DEBUG, tag, pattern, arg);
     }
 
     /**
-     * Send a {@link #Constants.WARN} log message and log the exception.
+     * Send a {@link #Constants.DEBUG} log message built from a pattern, see
+     * {@link #d(String, String, Object)}. The argument is
+     * appended without boxing. A <code>float</code> is widened to
+     * <code>double</code> and shows the digits of the double,
+     * <code>0.1f</code> giving <code>0.10000000149011612</code>.
+     */
+    public static int d(String tag, String pattern, double arg) {
+        return logPattern(Constants.DEBUG, tag, pattern, arg);
+    }
+
+    /**
+     * Send a {@link #Constants.DEBUG} log message built from a pattern, see
+     * {@link #d(String, String, Object)}. The argument is
+     * appended without boxing.
+     */
+    public static int d(String tag, String pattern, boolean arg) {
+        return logPattern(Constants.DEBUG, tag, pattern, arg);
+    }
+
+    /**
+     * Send a {@link #Constants.DEBUG} log message built from a pattern, see
+     * {@link #d(String, String, Object)}. The character is
+     * appended without boxing.
+     */
+    public static int d(String tag, String pattern, char arg) {
+        return logPattern(Constants.DEBUG, tag, pattern, arg);
+    }
+
+    /**
+     * Send a {@link #Constants.DEBUG} log message built from a pattern. Each <code>{}</code>
+     * placeholder of the pattern is replaced by the next argument. The message
+     * is built only if it is logged or collected for the reports. Primitive
+     * arguments are boxed, unless both are integers or both are floating point
+     * numbers: the <code>long</code> and <code>double</code> forms append them
+     * without boxing. Two <code>char</code> arguments are widened to
+     * <code>long</code> and appended as numbers, pass them as strings.
      *
-     * @param tr
-     *            An exception to log
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param pattern
+     *            The message pattern.
+     * @param arg1
+     *            The argument replacing the first placeholder.
+     * @param arg2
+     *            The argument replacing the second placeholder.
+     */
+    public static int d(String tag, String pattern, Object arg1, Object arg2) {
+        return logPattern(Constants.DEBUG, tag, pattern, arg1, arg2);
+    }
+
+    /**
+     * Send a {@link #Constants.DEBUG} log message built from a pattern, see
+     * {@link #d(String, String, Object, Object)}. The arguments are
+     * appended without boxing.
      */
-    public static int w(String tag, Throwable tr) {
-        collectLogEntry(Constants.WARN, tag, "", null);
-        if (isLoggable(tag, Constants.WARN)) {
-            return android.util.Log.w(tag, tr);
-        }
-        return 0;
+    public static int d(String tag, String pattern, long arg1, long arg2) {
+        return logPattern(Constants.DEBUG, tag, pattern, arg1, arg2);
     }
 
     /**
-     * Send an {@link #Constants.ERROR} log message.
+     * Send a {@link #Constants.DEBUG} log message built from a pattern, see
+     * {@link #d(String, String, Object, Object)}. The arguments are
+     * appended without boxing.
+     */
+    public static int d(String tag, String pattern, double arg1, double arg2) {
+        return logPattern(Constants.DEBUG, tag, pattern, arg1, arg2);
+    }
+
+    /**
+     * Send a {@link #Constants.DEBUG} log message built from a pattern. Each <code>{}</code>
+     * placeholder of the pattern is replaced by the next argument. The message
+     * is built only if it is logged or collected for the reports. Primitive
+     * arguments are boxed.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param pattern
+     *            The message pattern.
+     * @param arg1
+     *            The argument replacing the first placeholder.
+     * @param arg2
+     *            The argument replacing the second placeholder.
+     * @param arg3
+     *            The argument replacing the third placeholder.
+     */
+    public static int d(String tag, String pattern, Object arg1, Object arg2, Object arg3) {
+        return logPattern(Constants.DEBUG, tag, pattern, arg1, arg2, arg3);
+    }
+
+    /**
+     * Send an {@link #Constants.INFO} log message.
      *
      * @param tag
      *            Used to identify the source of a log message. It usually
@@ -882,16 +1147,12 @@ public class Log {
      * @param msg
      *            The message you would like logged.
      */
-    public static int e(String tag, String msg) {
-        collectLogEntry(Constants.ERROR, tag, msg, null);
-        if (isLoggable(tag, Constants.ERROR)) {
-            return android.util.Log.e(tag, msg);
-        }
-        return 0;
+    public static int i(String tag, String msg) {
+        return log(currentConfiguration, Constants.INFO, tag, msg, null);
     }
 
     /**
-     * Send a {@link #Constants.ERROR} log message and log the exception.
+     * Send a {@link #Constants.INFO} log message and log the exception.
      *
      * @param tag
      *            Used to identify the source of a log message. It usually
@@ -901,71 +1162,47 @@ public class Log {
      * @param tr
      *            An exception to log
      */
-    public static int e(String tag, String msg, Throwable tr) {
-        collectLogEntry(Constants.ERROR, tag, msg, tr);
-        if (isLoggable(tag, Constants.ERROR)) {
-            return android.util.Log.e(tag, msg, tr);
-        }
-        return 0;
+    public static int i(String tag, String msg, Throwable tr) {
+        return log(currentConfiguration, Constants.INFO, tag, msg, tr);
     }
 
     /**
-     * Send a {@link #Constants.ERROR} log message.
+     * Send a {@link #Constants.INFO} log message.
      *
      * @param object
      *            The object logging this message.
      * @param msg
      *            The message you would like logged.
      */
-    public static int e(Object object, String msg) {
-        if (object != null) {
-            return e(object.getClass().getName(), msg);
-        }
-        return 0;
+    public static int i(Object object, String msg) {
+        return log(currentConfiguration, Constants.INFO, object, msg, null);
     }
 
     /**
-     * Send a {@link #Constants.ERROR} log message.
+     * Send a {@link #Constants.INFO} log message.
      *
      * @param msg
      *            The message you would like logged.
      */
-    public static int e(String msg) {
-        // This is a quick check to avoid the expensive stack trace reflection.
-        if (!activated) {
-            return 0;
-        }
-        String caller = LogHelper.getCaller();
-        if (caller != null) {
-            return e(caller, msg);
-        }
-        return 0;
+    public static int i(String msg) {
+        return logFromCaller(Constants.INFO, msg);
     }
 
     /**
-     * Send a {@link #Constants.ERROR} log message and log the exception.
+     * Send a {@link #Constants.INFO} log message and log the exception.
      *
      * @param msg
      *            The message you would like logged.
      * @param tr
      *            An exception to log
      */
-    public static int e(Object object, String msg, Throwable tr) {
-        if (object != null) {
-            return e(object.getClass().getName(), msg, tr);
-        }
-        return 0;
+    public static int i(Object object, String msg, Throwable tr) {
+        return log(currentConfiguration, Constants.INFO, object, msg, tr);
     }
 
     /**
-     * What a Terrible Failure: Report a condition that should never happen. The
-     * error will always be logged at level Constants.ASSERT despite the logging is
-     * disabled. Depending on system configuration, and on Android 2.2+, a
-     * report may be added to the DropBoxManager and/or the process may be
-     * terminated immediately with an error dialog.
-     *
-     * On older Android version (before 2.2), the message is logged with the
-     * Assert level. Those log messages will always be logged.
+     * Send an {@link #Constants.INFO} log message built on demand. The message is built
+     * only if it is logged or collected for the reports.
      *
      * @param tag
      *            Used to identify the source of a log message. It usually
@@ -973,287 +1210,1573 @@ public class Log {
      * @param msg
      *            The message you would like logged.
      */
-    public static int wtf(String tag, String msg) {
-        collectLogEntry(Constants.ASSERT, tag, msg, null);
-        if (isLoggable(tag, Constants.ASSERT)) {
-            if (useWTF) {
-                try {
-                    return (Integer) wtfTagMessageMethod.invoke(null,
-                            new Object[] { tag, msg });
-                } catch (Exception e) {
-                    return LogHelper.println(Constants.ASSERT, tag, msg);
-                }
-            } else {
-                return LogHelper.println(Constants.ASSERT, tag, msg);
-            }
-        }
-        return 0;
+    public static int i(String tag, LazyMessage msg) {
+        return log(currentConfiguration, Constants.INFO, tag, msg, null);
     }
 
     /**
-     * What a Terrible Failure: Report a condition that should never happen. The
-     * error will always be logged at level Constants.ASSERT despite the logging is
-     * disabled. Depending on system configuration, and on Android 2.2+, a
-     * report may be added to the DropBoxManager and/or the process may be
-     * terminated immediately with an error dialog.
-     *
-     * On older Android version (before 2.2), the message is logged with the
-     * Assert level. Those log messages will always be logged.
+     * Send an {@link #Constants.INFO} log message built on demand and log the exception.
+     * The message is built only if it is logged or collected for the reports.
      *
      * @param tag
      *            Used to identify the source of a log message. It usually
      *            identifies the class or activity where the log call occurs.
+     * @param msg
+     *            The message you would like logged.
      * @param tr
-     *            The exception to log
+     *            An exception to log
      */
-    public static int wtf(String tag, Throwable tr) {
-        collectLogEntry(Constants.VERBOSE, tag, "", tr);
-        if (isLoggable(tag, Constants.ASSERT)) {
-            if (useWTF) {
-                try {
-                    return (Integer) wtfTagErrorMethod.invoke(null,
-                            new Object[] { tag, tr });
-                } catch (Exception e) {
-                    return LogHelper.println(Constants.ASSERT, tag, LogHelper.getStackTraceString(tr));
-                }
-            } else {
-                return LogHelper.println(Constants.ASSERT, tag, LogHelper.getStackTraceString(tr));
-            }
-        }
-        return 0;
+    public static int i(String tag, LazyMessage msg, Throwable tr) {
+        return log(currentConfiguration, Constants.INFO, tag, msg, tr);
     }
 
     /**
-     * What a Terrible Failure: Report a condition that should never happen. The
-     * error will always be logged at level Constants.ASSERT despite the logging is
-     * disabled. Depending on system configuration, and on Android 2.2+, a
-     * report may be added to the DropBoxManager and/or the process may be
-     * terminated immediately with an error dialog.
-     *
-     * On older Android version (before 2.2), the message is logged with the
-     * Assert level. Those log messages will always be logged.
+     * Send an {@link #Constants.INFO} log message built from a pattern. Each <code>{}</code>
+     * placeholder of the pattern is replaced by the next argument. The message
+     * is built only if it is logged or collected for the reports.
      *
      * @param tag
      *            Used to identify the source of a log message. It usually
      *            identifies the class or activity where the log call occurs.
-     * @param msg
-     *            The message you would like logged.
-     * @param tr
-     *            The exception to log
+     * @param pattern
+     *            The message pattern.
+     * @param arg
+     *            The argument replacing the placeholder.
      */
-    public static int wtf(String tag, String msg, Throwable tr) {
-        collectLogEntry(Constants.ASSERT, tag, msg, tr);
-        if (isLoggable(tag, Constants.ASSERT)) {
-            if (useWTF) {
-                try {
-                    return (Integer) wtfTagMessageErrorMethod.invoke(null,
-                            new Object[] { tag, msg, tr });
-                } catch (Exception e) {
-                    return LogHelper.println(Constants.ASSERT, tag, msg + '\n'
-                            + LogHelper.getStackTraceString(tr));
-                }
-            } else {
-                return LogHelper.println(Constants.ASSERT, tag, msg + '\n'
-                        + LogHelper.getStackTraceString(tr));
-            }
-        }
-        return 0;
+    public static int i(String tag, String pattern, Object arg) {
+        return logPattern(Constants.INFO, tag, pattern, arg);
     }
 
     /**
-     * What a Terrible Failure: Report a condition that should never happen. The
-     * error will always be logged at level Constants.ASSERT despite the logging is
-     * disabled. Depending on system configuration, and on Android 2.2+, a
-     * report may be added to the DropBoxManager and/or the process may be
-     * terminated immediately with an error dialog.
-     *
-     * On older Android version (before 2.2), the message is logged with the
-     * Assert level. Those log messages will always be logged.
-     *
-     * @param object
-     *            Used to compute the tag.
-     * @param msg
-     *            The message you would like logged.
-     * @param tr
-     *            The exception to log
+     * Send an {@link #Constants.INFO} log message built from a pattern, see
+     * {@link #i(String, String, Object)}. The argument is
+     * appended without boxing.
      */
-    public static int wtf(Object object, String msg, Throwable tr) {
-        if (object != null) {
-            return wtf(object.getClass().getName(), msg, tr);
-        }
-        return 0;
+    public static int i(String tag, String pattern, int arg) {
+        return logPattern(Constants.INFO, tag, pattern, arg);
     }
 
     /**
-     * What a Terrible Failure: Report a condition that should never happen. The
-     * error will always be logged at level Constants.ASSERT despite the logging is
-     * disabled. Depending on system configuration, and on Android 2.2+, a
-     * report may be added to the DropBoxManager and/or the process may be
-     * terminated immediately with an error dialog.
-     *
-     * On older Android version (before 2.2), the message is logged with the
-     * Assert level. Those log messages will always be logged.
-     *
-     * @param object
-     *            Used to compute the tag.
-     * @param msg
-     *            The message you would like logged.
+     * Send an {@link #Constants.INFO} log message built from a pattern, see
+     * {@link #i(String, String, Object)}. The argument is
+     * appended without boxing.
      */
-    public static int wtf(Object object, String msg) {
-        if (object != null) {
-            return wtf(object.getClass().getName(), msg);
-        }
-        return 0;
+    public static int i(String tag, String pattern, long arg) {
+        return logPattern(Constants.INFO, tag, pattern, arg);
     }
 
     /**
-     * Checks to see whether or not a log for the specified tag is loggable at
-     * the specified level.
-     *
-     * The default level of any tag is set as specified in
-     * {@link #setDefaultLogLevel(int)}. This means that any level above and
-     * including that level will be logged.
-     *
-     * Use {@link #configure(Properties)} to define different log levels for
-     * each tag.
-     *
-     * @param tag
-     *            The tag to check.
-     * @param level
-     *            The level to check.
-     * @return Whether or not that this is allowed to be logged.
+     * Send an {@link #Constants.INFO} log message built from a pattern, see
+     * {@link #i(String, String, Object)}. The argument is
+     * appended without boxing. A <code>float</code> is widened to
+     * <code>double</code> and shows the digits of the double,
+     * <code>0.1f</code> giving <code>0.10000000149011612</code>.
      */
-    public static boolean isLoggable(String tag, int level) {
-        if (! activated && level != Constants.ASSERT) {
-            return false;
-        }
-        Integer logLevel = getLogLevel(tag);
-        if (logLevel == null) {
-            logLevel = defaultLogLevel;
-        }
-        return level >= logLevel;
+    public static int i(String tag, String pattern, double arg) {
+        return logPattern(Constants.INFO, tag, pattern, arg);
     }
 
     /**
-     * If called with "a.b.c.d", it will test for a.b.c.d, a.b.c, a.b, a
+     * Send an {@link #Constants.INFO} log message built from a pattern, see
+     * {@link #i(String, String, Object)}. The argument is
+     * appended without boxing.
      */
-    private static Integer getLogLevel(String tag) {
-        Integer result = logLevels.get(tag);
-        if (tag != null && result == null) {
-            int index = tag.lastIndexOf(".");
-            while (result == null && index > -1) {
-                result = logLevels.get(tag.substring(0, index));
-                index = tag.lastIndexOf(".", index - 1);
-            }
-        }
-        return result;
+    public static int i(String tag, String pattern, boolean arg) {
+        return logPattern(Constants.INFO, tag, pattern, arg);
     }
 
     /**
-     * Checks to see whether or not a log is reportable at the specified level.
-     *
-     * The default level of any tag is set as specified in
-     * {@link #setDefaultReportLevel(int)}. This means that any level above and
-     * including that level will be logged.
-     *
-     * @param level
-     *            The level to check.
-     * @return Whether or not that this is allowed to be reported.
+     * Send an {@link #Constants.INFO} log message built from a pattern, see
+     * {@link #i(String, String, Object)}. The character is
+     * appended without boxing.
      */
-    public static boolean isReportable(int level) {
-        return reportingActivated && enableLogEntryCollection
-                && level >= defaultReportLevel;
+    public static int i(String tag, String pattern, char arg) {
+        return logPattern(Constants.INFO, tag, pattern, arg);
     }
 
     /**
-     * Checks to see whether or not a log for the specified object is loggable
-     * at the specified level. The tag is computed from the given object
-     * (qualified class name).
+     * Send an {@link #Constants.INFO} log message built from a pattern. Each <code>{}</code>
+     * placeholder of the pattern is replaced by the next argument. The message
+     * is built only if it is logged or collected for the reports. Primitive
+     * arguments are boxed, unless both are integers or both are floating point
+     * numbers: the <code>long</code> and <code>double</code> forms append them
+     * without boxing. Two <code>char</code> arguments are widened to
+     * <code>long</code> and appended as numbers, pass them as strings.
      *
-     * @param object
-     *            the object.
-     * @param level
-     *            the level to check.
-     * @return Whether or not that this is allowed to be logged.
-     */
-    public static boolean isLoggable(Object object, int level) {
-        return isLoggable(object.getClass().getName(), level);
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param pattern
+     *            The message pattern.
+     * @param arg1
+     *            The argument replacing the first placeholder.
+     * @param arg2
+     *            The argument replacing the second placeholder.
+     */
+    public static int i(String tag, String pattern, Object arg1, Object arg2) {
+        return logPattern(Constants.INFO, tag, pattern, arg1, arg2);
     }
 
     /**
-     * Triggers a report without message and error
-     *
-     * @return <code>true</code> if the report was successfully sent by
-     *         <b>all</b> reporters, <code>false</code> otherwise.
+     * Send an {@link #Constants.INFO} log message built from a pattern, see
+     * {@link #i(String, String, Object, Object)}. The arguments are
+     * appended without boxing.
      */
-    public static boolean report() {
-        return report(null, null);
+    public static int i(String tag, String pattern, long arg1, long arg2) {
+        return logPattern(Constants.INFO, tag, pattern, arg1, arg2);
     }
 
     /**
-     * Triggers a Report. This method generates the report and send it with all
-     * configured reporters.
-     *
-     * @param message
-     *            the message
-     * @param error
-     *            the error
-     * @return <code>true</code> if the report was successfully sent by
-     *         <b>all</b> reporters, <code>false</code> otherwise.
+     * Send an {@link #Constants.INFO} log message built from a pattern, see
+     * {@link #i(String, String, Object, Object)}. The arguments are
+     * appended without boxing.
      */
-    public static boolean report(String message, Throwable error) {
-        boolean acc = true;
-        for (Reporter reporter : reporters) {
-            if (reportFactory != null && reporter instanceof EnhancedReporter) {
-                Report report = reportFactory.create(context, message, error);
-                acc = acc && ((EnhancedReporter) reporter).send(context, report);
-            } else {
-                acc = acc && reporter.send(context, message, error);
-            }
-        }
-        return acc;
+    public static int i(String tag, String pattern, double arg1, double arg2) {
+        return logPattern(Constants.INFO, tag, pattern, arg1, arg2);
     }
 
     /**
-     * Adds a log entry to the collected entry list. This method managed the
-     * maximum number of entries and triggers report if the entry priority is
-     * superior or equals to the report trigger level.
+     * Send an {@link #Constants.INFO} log message built from a pattern. Each <code>{}</code>
+     * placeholder of the pattern is replaced by the next argument. The message
+     * is built only if it is logged or collected for the reports. Primitive
+     * arguments are boxed.
      *
-     * @param level
-     *            the log level of the entry
      * @param tag
-     *            the tag
-     * @param message
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param pattern
+     *            The message pattern.
+     * @param arg1
+     *            The argument replacing the first placeholder.
+     * @param arg2
+     *            The argument replacing the second placeholder.
+     * @param arg3
+     *            The argument replacing the third placeholder.
+     */
+    public static int i(String tag, String pattern, Object arg1, Object arg2, Object arg3) {
+        return logPattern(Constants.INFO, tag, pattern, arg1, arg2, arg3);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param msg
+     *            The message you would like logged.
+     */
+    public static int w(String tag, String msg) {
+        return log(currentConfiguration, Constants.WARN, tag, msg, null);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message and log the exception.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param msg
+     *            The message you would like logged.
+     * @param tr
+     *            An exception to log
+     */
+    public static int w(String tag, String msg, Throwable tr) {
+        return log(currentConfiguration, Constants.WARN, tag, msg, tr);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message.
+     *
+     * @param object
+     *            The object logging this message.
+     * @param msg
+     *            The message you would like logged.
+     */
+    public static int w(Object object, String msg) {
+        return log(currentConfiguration, Constants.WARN, object, msg, null);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message.
+     *
+     * @param msg
+     *            The message you would like logged.
+     */
+    public static int w(String msg) {
+        return logFromCaller(Constants.WARN, msg);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message and log the exception.
+     *
+     * @param msg
+     *            The message you would like logged.
+     * @param tr
+     *            An exception to log
+     */
+    public static int w(Object object, String msg, Throwable tr) {
+        return log(currentConfiguration, Constants.WARN, object, msg, tr);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message built on demand. The message is built
+     * only if it is logged or collected for the reports.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param msg
+     *            The message you would like logged.
+     */
+    public static int w(String tag, LazyMessage msg) {
+        return log(currentConfiguration, Constants.WARN, tag, msg, null);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message built on demand and log the exception.
+     * The message is built only if it is logged or collected for the reports.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param msg
+     *            The message you would like logged.
+     * @param tr
+     *            An exception to log
+     */
+    public static int w(String tag, LazyMessage msg, Throwable tr) {
+        return log(currentConfiguration, Constants.WARN, tag, msg, tr);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message built from a pattern. Each <code>{}</code>
+     * placeholder of the pattern is replaced by the next argument. The message
+     * is built only if it is logged or collected for the reports.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param pattern
+     *            The message pattern.
+     * @param arg
+     *            The argument replacing the placeholder.
+     */
+    public static int w(String tag, String pattern, Object arg) {
+        return logPattern(Constants.WARN, tag, pattern, arg);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message built from a pattern, see
+     * {@link #w(String, String, Object)}. The argument is
+     * appended without boxing.
+     */
+    public static int w(String tag, String pattern, int arg) {
+        return logPattern(Constants.WARN, tag, pattern, arg);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message built from a pattern, see
+     * {@link #w(String, String, Object)}. The argument is
+     * appended without boxing.
+     */
+    public static int w(String tag, String pattern, long arg) {
+        return logPattern(Constants.WARN, tag, pattern, arg);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message built from a pattern, see
+     * {@link #w(String, String, Object)}. The argument is
+     * appended without boxing. A <code>float</code> is widened to
+     * <code>double</code> and shows the digits of the double,
+     * <code>0.1f</code> giving <code>0.10000000149011612</code>.
+     */
+    public static int w(String tag, String pattern, double arg) {
+        return logPattern(Constants.WARN, tag, pattern, arg);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message built from a pattern, see
+     * {@link #w(String, String, Object)}. The argument is
+     * appended without boxing.
+     */
+    public static int w(String tag, String pattern, boolean arg) {
+        return logPattern(Constants.WARN, tag, pattern, arg);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message built from a pattern, see
+     * {@link #w(String, String, Object)}. The character is
+     * appended without boxing.
+     */
+    public static int w(String tag, String pattern, char arg) {
+        return logPattern(Constants.WARN, tag, pattern, arg);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message built from a pattern. Each <code>{}</code>
+     * placeholder of the pattern is replaced by the next argument. The message
+     * is built only if it is logged or collected for the reports. Primitive
+     * arguments are boxed, unless both are integers or both are floating point
+     * numbers: the <code>long</code> and <code>double</code> forms append them
+     * without boxing. Two <code>char</code> arguments are widened to
+     * <code>long</code> and appended as numbers, pass them as strings.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param pattern
+     *            The message pattern.
+     * @param arg1
+     *            The argument replacing the first placeholder.
+     * @param arg2
+     *            The argument replacing the second placeholder.
+     */
+    public static int w(String tag, String pattern, Object arg1, Object arg2) {
+        return logPattern(Constants.WARN, tag, pattern, arg1, arg2);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message built from a pattern, see
+     * {@link #w(String, String, Object, Object)}. The arguments are
+     * appended without boxing.
+     */
+    public static int w(String tag, String pattern, long arg1, long arg2) {
+        return logPattern(Constants.WARN, tag, pattern, arg1, arg2);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message built from a pattern, see
+     * {@link #w(String, String, Object, Object)}. The arguments are
+     * appended without boxing.
+     */
+    public static int w(String tag, String pattern, double arg1, double arg2) {
+        return logPattern(Constants.WARN, tag, pattern, arg1, arg2);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message built from a pattern. Each <code>{}</code>
+     * placeholder of the pattern is replaced by the next argument. The message
+     * is built only if it is logged or collected for the reports. Primitive
+     * arguments are boxed.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param pattern
+     *            The message pattern.
+     * @param arg1
+     *            The argument replacing the first placeholder.
+     * @param arg2
+     *            The argument replacing the second placeholder.
+     * @param arg3
+     *            The argument replacing the third placeholder.
+     */
+    public static int w(String tag, String pattern, Object arg1, Object arg2, Object arg3) {
+        return logPattern(Constants.WARN, tag, pattern, arg1, arg2, arg3);
+    }
+
+    /**
+     * Send a {@link #Constants.WARN} log message and log the exception.
+     *
+     * @param tr
+     *            An exception to log
+     */
+    public static int w(String tag, Throwable tr) {
+        LogConfiguration config = currentConfiguration;
+        collectLogEntry(config, Constants.WARN, tag, "", null, true);
+        if (config.isLoggable(tag, Constants.WARN) && acquire(config, Constants.WARN, tag, tag)) {
+            return android.util.Log.w(tag, tr);
+        }
+        return 0;
+    }
+
+    /**
+     * Send an {@link #Constants.ERROR} log message.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param msg
+     *            The message you would like logged.
+     */
+    public static int e(String tag, String msg) {
+        return log(currentConfiguration, Constants.ERROR, tag, msg, null);
+    }
+
+    /**
+     * Send a {@link #Constants.ERROR} log message and log the exception.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param msg
+     *            The message you would like logged.
+     * @param tr
+     *            An exception to log
+     */
+    public static int e(String tag, String msg, Throwable tr) {
+        return log(currentConfiguration, Constants.ERROR, tag, msg, tr);
+    }
+
+    /**
+     * Send a {@link #Constants.ERROR} log message.
+     *
+     * @param object
+     *            The object logging this message.
+     * @param msg
+     *            The message you would like logged.
+     */
+    public static int e(Object object, String msg) {
+        return log(currentConfiguration, Constants.ERROR, object, msg, null);
+    }
+
+    /**
+     * Send a {@link #Constants.ERROR} log message.
+     *
+     * @param msg
+     *            The message you would like logged.
+     */
+    public static int e(String msg) {
+        return logFromCaller(Constants.ERROR, msg);
+    }
+
+    /**
+     * Send a {@link #Constants.ERROR} log message and log the exception.
+     *
+     * @param msg
+     *            The message you would like logged.
+     * @param tr
+     *            An exception to log
+     */
+    public static int e(Object object, String msg, Throwable tr) {
+        return log(currentConfiguration, Constants.ERROR, object, msg, tr);
+    }
+
+    /**
+     * Send an {@link #Constants.ERROR} log message built on demand. The message is built
+     * only if it is logged or collected for the reports.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param msg
+     *            The message you would like logged.
+     */
+    public static int e(String tag, LazyMessage msg) {
+        return log(currentConfiguration, Constants.ERROR, tag, msg, null);
+    }
+
+    /**
+     * Send an {@link #Constants.ERROR} log message built on demand and log the exception.
+     * The message is built only if it is logged or collected for the reports.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param msg
+     *            The message you would like logged.
+     * @param tr
+     *            An exception to log
+     */
+    public static int e(String tag, LazyMessage msg, Throwable tr) {
+        return log(currentConfiguration, Constants.ERROR, tag, msg, tr);
+    }
+
+    /**
+     * Send an {@link #Constants.ERROR} log message built from a pattern. Each <code>{}</code>
+     * placeholder of the pattern is replaced by the next argument. The message
+     * is built only if it is logged or collected for the reports.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param pattern
+     *            The message pattern.
+     * @param arg
+     *            The argument replacing the placeholder.
+     */
+    public static int e(String tag, String pattern, Object arg) {
+        return logPattern(Constants.ERROR, tag, pattern, arg);
+    }
+
+    /**
+     * Send an {@link #Constants.ERROR} log message built from a pattern, see
+     * {@link #e(String, String, Object)}. The argument is
+     * appended without boxing.
+     */
+    public static int e(String tag, String pattern, int arg) {
+        return logPattern(Constants.ERROR, tag, pattern, arg);
+    }
+
+    /**
+     * Send an {@link #Constants.ERROR} log message built from a pattern, see
+     * {@link #e(String, String, Object)}. The argument is
+     * appended without boxing.
+     */
+    public static int e(String tag, String pattern, long arg) {
+        return logPattern(Constants.ERROR, tag, pattern, arg);
+    }
+
+    /**
+     * Send an {@link #Constants.ERROR} log message built from a pattern, see
+     * {@link #e(String, String, Object)}. The argument is
+     * appended without boxing. A <code>float</code> is widened to
+     * <code>double</code> and shows the digits of the double,
+     * <code>0.1f</code> giving <code>0.10000000149011612</code>.
+     */
+    public static int e(String tag, String pattern, double arg) {
+        return logPattern(Constants.ERROR, tag, pattern, arg);
+    }
+
+    /**
+     * Send an {@link #Constants.ERROR} log message built from a pattern, see
+     * {@link #e(String, String, Object)}. The argument is
+     * appended without boxing.
+     */
+    public static int e(String tag, String pattern, boolean arg) {
+        return logPattern(Constants.ERROR, tag, pattern, arg);
+    }
+
+    /**
+     * Send an {@link #Constants.ERROR} log message built from a pattern, see
+     * {@link #e(String, String, Object)}. The character is
+     * appended without boxing.
+     */
+    public static int e(String tag, String pattern, char arg) {
+        return logPattern(Constants.ERROR, tag, pattern, arg);
+    }
+
+    /**
+     * Send an {@link #Constants.ERROR} log message built from a pattern. Each <code>{}</code>
+     * placeholder of the pattern is replaced by the next argument. The message
+     * is built only if it is logged or collected for the reports. Primitive
+     * arguments are boxed, unless both are integers or both are floating point
+     * numbers: the <code>long</code> and <code>double</code> forms append them
+     * without boxing. Two <code>char</code> arguments are widened to
+     * <code>long</code> and appended as numbers, pass them as strings.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param pattern
+     *            The message pattern.
+     * @param arg1
+     *            The argument replacing the first placeholder.
+     * @param arg2
+     *            The argument replacing the second placeholder.
+     */
+    public static int e(String tag, String pattern, Object arg1, Object arg2) {
+        return logPattern(Constants.ERROR, tag, pattern, arg1, arg2);
+    }
+
+    /**
+     * Send an {@link #Constants.ERROR} log message built from a pattern, see
+     * {@link #e(String, String, Object, Object)}. The arguments are
+     * appended without boxing.
+     */
+    public static int e(String tag, String pattern, long arg1, long arg2) {
+        return logPattern(Constants.ERROR, tag, pattern, arg1, arg2);
+    }
+
+    /**
+     * Send an {@link #Constants.ERROR} log message built from a pattern, see
+     * {@link #e(String, String, Object, Object)}. The arguments are
+     * appended without boxing.
+     */
+    public static int e(String tag, String pattern, double arg1, double arg2) {
+        return logPattern(Constants.ERROR, tag, pattern, arg1, arg2);
+    }
+
+    /**
+     * Send an {@link #Constants.ERROR} log message built from a pattern. Each <code>{}</code>
+     * placeholder of the pattern is replaced by the next argument. The message
+     * is built only if it is logged or collected for the reports. Primitive
+     * arguments are boxed.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param pattern
+     *            The message pattern.
+     * @param arg1
+     *            The argument replacing the first placeholder.
+     * @param arg2
+     *            The argument replacing the second placeholder.
+     * @param arg3
+     *            The argument replacing the third placeholder.
+     */
+    public static int e(String tag, String pattern, Object arg1, Object arg2, Object arg3) {
+        return logPattern(Constants.ERROR, tag, pattern, arg1, arg2, arg3);
+    }
+
+    /**
+     * What a Terrible Failure: Report a condition that should never happen. The
+     * error will always be logged at level Constants.ASSERT despite the logging is
+     * disabled. Depending on system configuration, and on Android 2.2+, a
+     * report may be added to the DropBoxManager and/or the process may be
+     * terminated immediately with an error dialog.
+     *
+     * On older Android version (before 2.2), the message is logged with the
+     * Assert level. Those log messages will always be logged.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param msg
+     *            The message you would like logged.
+     */
+    public static int wtf(String tag, String msg) {
+        return log(currentConfiguration, Constants.ASSERT, tag, msg, null);
+    }
+
+    /**
+     * What a Terrible Failure: Report a condition that should never happen. The
+     * error will always be logged at level Constants.ASSERT despite the logging is
+     * disabled. Depending on system configuration, and on Android 2.2+, a
+     * report may be added to the DropBoxManager and/or the process may be
+     * terminated immediately with an error dialog.
+     *
+     * On older Android version (before 2.2), the message is logged with the
+     * Assert level. Those log messages will always be logged.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param tr
+     *            The exception to log
+     */
+    public static int wtf(String tag, Throwable tr) {
+        LogConfiguration config = currentConfiguration;
+        collectLogEntry(config, Constants.VERBOSE, tag, "", tr, true);
+        if (config.isLoggable(tag, Constants.ASSERT)) {
+            if (config.useWTF) {
+                try {
+                    return (Integer) wtfTagErrorMethod.invoke(null,
+                            new Object[] { tag, tr });
+                } catch (Exception e) {
+                    return LogHelper.println(Constants.ASSERT, tag, LogHelper.getStackTraceString(tr));
+                }
+            } else {
+                return LogHelper.println(Constants.ASSERT, tag, LogHelper.getStackTraceString(tr));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * What a Terrible Failure: Report a condition that should never happen. The
+     * error will always be logged at level Constants.ASSERT despite the logging is
+     * disabled. Depending on system configuration, and on Android 2.2+, a
+     * report may be added to the DropBoxManager and/or the process may be
+     * terminated immediately with an error dialog.
+     *
+     * On older Android version (before 2.2), the message is logged with the
+     * Assert level. Those log messages will always be logged.
+     *
+     * @param tag
+     *            Used to identify the source of a log message. It usually
+     *            identifies the class or activity where the log call occurs.
+     * @param msg
+     *            The message you would like logged.
+     * @param tr
+     *            The exception to log
+     */
+    public static int wtf(String tag, String msg, Throwable tr) {
+        return log(currentConfiguration, Constants.ASSERT, tag, msg, tr);
+    }
+
+    /**
+     * What a Terrible Failure: Report a condition that should never happen. The
+     * error will always be logged at level Constants.ASSERT despite the logging is
+     * disabled. Depending on system configuration, and on Android 2.2+, a
+     * report may be added to the DropBoxManager and/or the process may be
+     * terminated immediately with an error dialog.
+     *
+     * On older Android version (before 2.2), the message is logged with the
+     * Assert level. Those log messages will always be logged.
+     *
+     * @param object
+     *            Used to compute the tag.
+     * @param msg
+     *            The message you would like logged.
+     * @param tr
+     *            The exception to log
+     */
+    public static int wtf(Object object, String msg, Throwable tr) {
+        return log(currentConfiguration, Constants.ASSERT, object, msg, tr);
+    }
+
+    /**
+     * What a Terrible Failure: Report a condition that should never happen. The
+     * error will always be logged at level Constants.ASSERT despite the logging is
+     * disabled. Depending on system configuration, and on Android 2.2+, a
+     * report may be added to the DropBoxManager and/or the process may be
+     * terminated immediately with an error dialog.
+     *
+     * On older Android version (before 2.2), the message is logged with the
+     * Assert level. Those log messages will always be logged.
+     *
+     * @param object
+     *            Used to compute the tag.
+     * @param msg
+     *            The message you would like logged.
+     */
+    public static int wtf(Object object, String msg) {
+        return log(currentConfiguration, Constants.ASSERT, object, msg, null);
+    }
+
+    /**
+     * Gets a {@link Logger} for the given tag. The logger caches its log level
+     * decisions until the configuration changes, so it is cheaper than the
+     * static methods when logging repeatedly with the same tag. Loggers can be
+     * kept in static fields, they follow the configuration changes.
+     *
+     * @param tag
+     *            the tag
+     * @return the logger
+     */
+    public static Logger forTag(String tag) {
+        return new Logger(tag, tag);
+    }
+
+    /**
+     * Gets a {@link Logger} using the qualified name of the given class as
+     * tag. If {@link Constants#ANDROLOG_TAG_ABBREVIATE} is enabled when the
+     * logger is created, its tag is abbreviated; the log level is still
+     * resolved from the qualified name.
+     *
+     * @param clazz
+     *            the class
+     * @return the logger
+     * @see #forTag(String)
+     */
+    public static Logger forClass(Class<?> clazz) {
+        ClassTagCache.Entry names = currentConfiguration.classTags.get(clazz);
+        return new Logger(names.name, names.tag);
+    }
+
+    /**
+     * Gets a {@link Logger} using the qualified class name of the given object
+     * as tag.
+     *
+     * @param object
+     *            the object
+     * @return the logger
+     * @see #forTag(String)
+     */
+    public static Logger forObject(Object object) {
+        return forClass(object.getClass());
+    }
+
+    /**
+     * Gets the current configuration snapshot.
+     *
+     * @return the configuration
+     */
+    static LogConfiguration getConfiguration() {
+        return currentConfiguration;
+    }
+
+    /**
+     * Checks to see whether or not a log for the specified tag is loggable at
+     * the specified level.
+     *
+     * The default level of any tag is set as specified in
+     * {@link #setDefaultLogLevel(int)}. This means that any level above and
+     * including that level will be logged.
+     *
+     * Use {@link #configure(Properties)} to define different log levels for
+     * each tag.
+     *
+     * @param tag
+     *            The tag to check.
+     * @param level
+     *            The level to check.
+     * @return Whether or not that this is allowed to be logged.
+     */
+    public static boolean isLoggable(String tag, int level) {
+        return currentConfiguration.isLoggable(tag, level);
+    }
+
+    /**
+     * Checks to see whether or not a log is reportable at the specified level.
+     *
+     * The default level of any tag is set as specified in
+     * {@link #setDefaultReportLevel(int)}. This means that any level above and
+     * including that level will be logged.
+     *
+     * @param level
+     *            The level to check.
+     * @return Whether or not that this is allowed to be reported.
+     */
+    public static boolean isReportable(int level) {
+        return currentConfiguration.isReportable(level);
+    }
+
+    /**
+     * Checks to see whether or not a log for the specified object is loggable
+     * at the specified level. The tag is computed from the given object
+     * (qualified class name).
+     *
+     * @param object
+     *            the object, nothing is logged for <code>null</code>.
+     * @param level
+     *            the level to check.
+     * @return Whether or not that this is allowed to be logged.
+     */
+    public static boolean isLoggable(Object object, int level) {
+        if (object == null) {
+            return false;
+        }
+        LogConfiguration config = currentConfiguration;
+        return config.isLoggable(config.classTags.get(object.getClass()).name, level);
+    }
+
+    /**
+     * Triggers a report without message and error
+     *
+     * @return <code>true</code> if the report was successfully sent by
+     *         <b>all</b> reporters, <code>false</code> otherwise.
+     */
+    public static boolean report() {
+        return report(null, null);
+    }
+
+    /**
+     * Triggers a Report. This method generates the report and send it with all
+     * configured reporters.
+     *
+     * @param message
+     *            the message
+     * @param error
+     *            the error
+     * @return <code>true</code> if the report was successfully sent by
+     *         <b>all</b> reporters, <code>false</code> otherwise.
+     */
+    public static boolean report(String message, Throwable error) {
+        return report(currentConfiguration, message, error, null, null).isSuccessful();
+    }
+
+    /**
+     * Triggers a Report and gets the result of each reporter. The reporters
+     * send the report concurrently, each within its timeout (see
+     * {@link Constants#ANDROLOG_REPORT_TIMEOUT}).
+     *
+     * @param message
+     *            the message
+     * @param error
+     *            the error
+     * @return the result of the report
+     */
+    public static ReportResult reportWithResult(String message, Throwable error) {
+        return report(currentConfiguration, message, error, null, null);
+    }
+
+    /**
+     * Gets the result of the last report, triggered by the log calls or not.
+     *
+     * @return the result, <code>null</code> if no report was sent
+     */
+    public static ReportResult getLastReportResult() {
+        return lastReportResult;
+    }
+
+    /**
+     * Generates a report and sends it with all configured reporters.
+     *
+     * @param config
+     *            the configuration
+     * @param message
+     *            the message
+     * @param error
+     *            the error
+     * @param batch
+     *            the triggers of a coalesced report, <code>null</code> if the
+     *            report has a single trigger
+     * @param entries
+     *            the log entries of the report, <code>null</code> to read
+     *            them from the store
+     * @return the result of each reporter
+     */
+    private static ReportResult report(LogConfiguration config, String message, Throwable error,
+            ReportCoalescer.Batch batch, List<String> entries) {
+        flushRepeats(config);
+        // Built once, with a single log snapshot, for all the reporters.
+        Report report = null;
+        if (config.reportFactory != null) {
+            for (Reporter reporter : config.reporters) {
+                if (reporter instanceof EnhancedReporter) {
+                    setReportedSnapshot(entries);
+                    try {
+                        report = config.reportFactory.create(config.context, message, error);
+                    } finally {
+                        setReportedSnapshot(null);
+                    }
+                    if (batch != null && batch.count > 1) {
+                        for (ReportCoalescer.Trigger trigger : batch.triggers) {
+                            report.addTrigger(trigger.message, trigger.error);
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+        String text = batch == null ? message : batch.getSummary();
+        ReportResult result = ReportFanOut.send(config.reporters, config.getReportTimeouts(),
+                config.context, report, entries, text, error);
+        lastReportResult = result;
+        return result;
+    }
+
+    /**
+     * Sets the log entries of the report built by the current thread.
+     *
+     * @param entries
+     *            the entries, <code>null</code> to read them from the store
+     */
+    static void setReportedSnapshot(List<String> entries) {
+        if (entries == null) {
+            reportedSnapshot.remove();
+        } else {
+            reportedSnapshot.set(entries);
+        }
+    }
+
+    /**
+     * Collects and logs a message according to the given configuration.
+     *
+     * @param config
+     *            the configuration read by the calling log method
+     * @param level
+     *            the log level
+     * @param tag
+     *            the tag
+     * @param msg
+     *            the message
+     * @param tr
+     *            the error, can be <code>null</code>
+     * @return the number of bytes written, 0 if the message was not logged.
+     */
+    private static int log(LogConfiguration config, int level, String tag, String msg, Throwable tr) {
+        return dispatch(config, level, tag, tag, msg, tr, config.isLoggable(tag, level));
+    }
+
+    /**
+     * Collects and logs a message on behalf of the given object. The log level
+     * is resolved from the qualified class name of the object, the message is
+     * logged with the tag computed from it.
+     *
+     * @param config
+     *            the configuration read by the calling log method
+     * @param level
+     *            the log level
+     * @param object
+     *            the object logging the message, nothing is logged if
+     *            <code>null</code>
+     * @param msg
+     *            the message
+     * @param tr
+     *            the error, can be <code>null</code>
+     * @return the number of bytes written, 0 if the message was not logged.
+     */
+    private static int log(LogConfiguration config, int level, Object object, String msg,
+            Throwable tr) {
+        if (object == null) {
+            return 0;
+        }
+        ClassTagCache.Entry names = config.classTags.get(object.getClass());
+        return dispatch(config, level, names.name, names.tag, msg, tr,
+                config.isLoggable(names.name, level));
+    }
+
+    /**
+     * Logs a message using the qualified class name of the caller as tag.
+     *
+     * @param level
+     *            the log level
+     * @param msg
+     *            the message
+     * @return the number of bytes written, 0 if the message was not logged.
+     */
+    private static int logFromCaller(int level, String msg) {
+        LogConfiguration config = currentConfiguration;
+        // This is a quick check to avoid the expensive stack trace reflection.
+        if (!config.activated) {
+            return 0;
+        }
+
+        StackTraceElement caller = config.callerResolver.getCaller();
+        if (caller != null) {
+            ClassTagCache.Entry names = config.classTags.get(caller.getClassName());
+            return dispatch(config, level, names.name, names.tag,
+                    config.callerResolver.decorate(caller, msg), null,
+                    config.isLoggable(names.name, level));
+        }
+        return 0;
+    }
+
+    /**
+     * Checks whether a message is logged or collected for the reports, so
+     * needs to be built.
+     *
+     * @param config
+     *            the configuration read by the calling log method
+     * @param level
+     *            the log level
+     * @param tag
+     *            the tag
+     * @return <code>true</code> if the message is used
+     */
+    private static boolean isUsed(LogConfiguration config, int level, String tag) {
+        return config.isLoggable(tag, level) || config.isReportable(level);
+    }
+
+    /**
+     * Collects and logs a message built from a pattern with one argument,
+     * only if it is used. The helpers of the other arities work alike.
+     *
+     * @param level
+     *            the log level
+     * @param tag
+     *            the tag
+     * @param pattern
+     *            the message pattern
+     * @param arg
+     *            the argument
+     * @return the number of bytes written, 0 if the message was not logged.
+     */
+    private static int logPattern(int level, String tag, String pattern, Object arg) {
+        LogConfiguration config = currentConfiguration;
+        if (!isUsed(config, level, tag)) {
+            return 0;
+        }
+        return log(config, level, tag, MessageFormatter.format(pattern, arg), null);
+    }
+
+    private static int logPattern(int level, String tag, String pattern, long arg) {
+        LogConfiguration config = currentConfiguration;
+        if (!isUsed(config, level, tag)) {
+            return 0;
+        }
+        return log(config, level, tag, MessageFormatter.format(pattern, arg), null);
+    }
+
+    private static int logPattern(int level, String tag, String pattern, double arg) {
+        LogConfiguration config = currentConfiguration;
+        if (!isUsed(config, level, tag)) {
+            return 0;
+        }
+        return log(config, level, tag, MessageFormatter.format(pattern, arg), null);
+    }
+
+    private static int logPattern(int level, String tag, String pattern, boolean arg) {
+        LogConfiguration config = currentConfiguration;
+        if (!isUsed(config, level, tag)) {
+            return 0;
+        }
+        return log(config, level, tag, MessageFormatter.format(pattern, arg), null);
+    }
+
+    private static int logPattern(int level, String tag, String pattern, char arg) {
+        LogConfiguration config = currentConfiguration;
+        if (!isUsed(config, level, tag)) {
+            return 0;
+        }
+        return log(config, level, tag, MessageFormatter.format(pattern, arg), null);
+    }
+
+    private static int logPattern(int level, String tag, String pattern, Object arg1, Object arg2) {
+        LogConfiguration config = currentConfiguration;
+        if (!isUsed(config, level, tag)) {
+            return 0;
+        }
+        return log(config, level, tag, MessageFormatter.format(pattern, arg1, arg2), null);
+    }
+
+    private static int logPattern(int level, String tag, String pattern, long arg1, long arg2) {
+        LogConfiguration config = currentConfiguration;
+        if (!isUsed(config, level, tag)) {
+            return 0;
+        }
+        return log(config, level, tag, MessageFormatter.format(pattern, arg1, arg2), null);
+    }
+
+    private static int logPattern(int level, String tag, String pattern, double arg1, double arg2) {
+        LogConfiguration config = currentConfiguration;
+        if (!isUsed(config, level, tag)) {
+            return 0;
+        }
+        return log(config, level, tag, MessageFormatter.format(pattern, arg1, arg2), null);
+    }
+
+    private static int logPattern(int level, String tag, String pattern, Object arg1, Object arg2,
+            Object arg3) {
+        LogConfiguration config = currentConfiguration;
+        if (!isUsed(config, level, tag)) {
+            return 0;
+        }
+        return log(config, level, tag, MessageFormatter.format(pattern, arg1, arg2, arg3), null);
+    }
+
+    /**
+     * Collects and logs a message built on demand according to the given
+     * configuration.
+     *
+     * @param config
+     *            the configuration read by the calling log method
+     * @param level
+     *            the log level
+     * @param tag
+     *            the tag
+     * @param msg
+     *            the message
+     * @param tr
+     *            the error, can be <code>null</code>
+     * @return the number of bytes written, 0 if the message was not logged.
+     */
+    private static int log(LogConfiguration config, int level, String tag, LazyMessage msg,
+            Throwable tr) {
+        return dispatch(config, level, tag, tag, msg, tr, config.isLoggable(tag, level));
+    }
+
+    /**
+     * Builds the message if it has to be logged or collected for the reports,
+     * and dispatches it.
+     *
+     * @param config
+     *            the configuration read by the caller
+     * @param level
+     *            the log level
+     * @param name
+     *            the name the log level was resolved from, usually the tag
+     * @param tag
+     *            the tag
+     * @param msg
+     *            the message
+     * @param tr
+     *            the error, can be <code>null</code>
+     * @param loggable
+     *            whether the message must be sent to the Android Log
+     * @return the number of bytes written, 0 if the message was not logged.
+     */
+    static int dispatch(LogConfiguration config, int level, String name, String tag,
+            LazyMessage msg, Throwable tr, boolean loggable) {
+        if (!loggable && !config.isReportable(level)) {
+            return 0;
+        }
+        return dispatch(config, level, name, tag, msg.build(), tr, loggable);
+    }
+
+    /**
+     * Collects a message for the reports and logs it if the caller decided it
+     * is loggable. If enabled, the messages repeating the previous message of
+     * the thread are dropped and counted, see {@link RepeatCollapser}.
+     *
+     * @param config
+     *            the configuration read by the caller
+     * @param level
+     *            the log level
+     * @param name
+     *            the name the log level was resolved from, usually the tag
+     * @param tag
+     *            the tag
+     * @param msg
+     *            the message
+     * @param tr
+     *            the error, can be <code>null</code>
+     * @param loggable
+     *            whether the message must be sent to the Android Log
+     * @return the number of bytes written, 0 if the message was not logged.
+     */
+    static int dispatch(LogConfiguration config, int level, String name, String tag, String msg,
+            Throwable tr, boolean loggable) {
+        RepeatCollapser repeats = config.repeatCollapser;
+        if (repeats != null && (loggable || config.isReportable(level))) {
+            RepeatCollapser.Run run = repeats.getRun();
+            long now = System.nanoTime();
+            RepeatCollapser.Summary summary = null;
+            boolean repeated;
+            synchronized (run) {
+                repeated = tr == null && run.matches(level, tag, msg);
+                if (repeated) {
+                    run.count++;
+                    if (repeats.isExpired(run, now)) {
+                        summary = run.takeSummary(now);
+                    }
+                } else {
+                    if (run.count > 0) {
+                        summary = run.takeSummary(now);
+                    }
+                    if (tr == null) {
+                        run.begin(level, name, tag, msg, loggable, now);
+                    } else {
+                        run.clear();
+                    }
+                }
+            }
+            if (summary != null) {
+                logRepeated(config, summary, true);
+            }
+            if (repeated) {
+                if (summary == null && repeats.schedule()) {
+                    scheduleRepeats(repeats);
+                }
+                return 0;
+            }
+        }
+        return emit(config, level, name, tag, msg, tr, loggable, true);
+    }
+
+    /**
+     * Logs the summary of the repeated messages of a run.
+     *
+     * @param config
+     *            the configuration
+     * @param summary
+     *            the summary taken from the run
+     * @param trigger
+     *            whether the summary can trigger a report, see
+     *            {@link #collectLogEntry(LogConfiguration, int, String, String, Throwable, boolean)}
+     */
+    private static void logRepeated(LogConfiguration config, RepeatCollapser.Summary summary,
+            boolean trigger) {
+        emit(config, summary.level, summary.name, summary.tag, summary.getMessage(), null,
+                summary.loggable, trigger);
+    }
+
+    /**
+     * Schedules the summary of the runs of the threads which stopped logging
+     * the repeated message, once the timeout of the runs elapsed. Scheduled
+     * again while runs have repetitions not logged.
+     *
+     * @param repeats
+     *            the collapser
+     */
+    private static void scheduleRepeats(final RepeatCollapser repeats) {
+        LogTimer.schedule(new Runnable() {
+            public void run() {
+                try {
+                    LogConfiguration config = currentConfiguration;
+                    if (config.repeatCollapser != repeats) {
+                        // Summarized when the configuration changed.
+                        return;
+                    }
+                    for (RepeatCollapser.Summary summary : repeats.drain(System.nanoTime(), true)) {
+                        logRepeated(config, summary, true);
+                    }
+                    if (repeats.hasPending() && repeats.schedule()) {
+                        scheduleRepeats(repeats);
+                    }
+                } catch (Throwable e) {
+                    // Ignore
+                }
+            }
+        }, repeats.getTimeout());
+    }
+
+    /**
+     * Logs the summaries of the runs of all the threads, before a report is
+     * built or the configuration changes. They do not trigger reports.
+     *
+     * @param config
+     *            the configuration
+     */
+    private static void flushRepeats(LogConfiguration config) {
+        RepeatCollapser repeats = config.repeatCollapser;
+        if (repeats != null) {
+            for (RepeatCollapser.Summary summary : repeats.drain(System.nanoTime(), false)) {
+                logRepeated(config, summary, false);
+            }
+        }
+    }
+
+    /**
+     * Collects a message for the reports and sends it to the Android Log if
+     * it is loggable and not rate limited.
+     *
+     * @param config
+     *            the configuration
+     * @param level
+     *            the log level
+     * @param name
+     *            the name the log level was resolved from
+     * @param tag
+     *            the tag
+     * @param msg
+     *            the message
+     * @param tr
+     *            the error, can be <code>null</code>
+     * @param loggable
+     *            whether the message must be sent to the Android Log
+     * @param trigger
+     *            whether the message can trigger a report
+     * @return the number of bytes written, 0 if the message was not logged.
+     */
+    private static int emit(LogConfiguration config, int level, String name, String tag,
+            String msg, Throwable tr, boolean loggable, boolean trigger) {
+        collectLogEntry(config, level, tag, msg, tr, trigger);
+        if (loggable && acquire(config, level, name, tag)) {
+            return println(config, level, tag, msg, tr);
+        }
+        return 0;
+    }
+
+    /**
+     * Checks the rate limit applying to a loggable message. If messages were
+     * suppressed by the limit and no summary was logged during the last
+     * period, their number is logged before the message. Assert messages are
+     * never limited.
+     *
+     * @param config
+     *            the configuration
+     * @param level
+     *            the log level
+     * @param name
+     *            the name the rate limit is resolved from
+     * @param tag
+     *            the tag
+     * @return <code>true</code> if the message can be sent to the Android
+     *         Log, <code>false</code> if it is suppressed.
+     */
+    private static boolean acquire(LogConfiguration config, int level, String name, String tag) {
+        if (level >= Constants.ASSERT) {
+            return true;
+        }
+        RateLimiter limiter = config.getRateLimiter(name);
+        if (limiter == null) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (!limiter.tryAcquire(now)) {
+            if (limiter.schedule()) {
+                scheduleSuppressed(limiter, level, tag, now);
+            }
+            return false;
+        }
+        int suppressed = limiter.pollSuppressed(now);
+        if (suppressed > 0) {
+            println(config, level, tag, suppressed + " messages suppressed by the rate limit", null);
+        }
+        return true;
+    }
+
+    /**
+     * Schedules the summary of the messages suppressed by a rate limit, so it
+     * is logged even if no message is accepted anymore. Scheduled again while
+     * messages are suppressed.
+     *
+     * @param limiter
+     *            the rate limiter
+     * @param level
+     *            the log level of the summary
+     * @param tag
+     *            the tag of the summary
+     * @param now
+     *            the current time in nanoseconds
+     */
+    private static void scheduleSuppressed(final RateLimiter limiter, final int level,
+            final String tag, long now) {
+        LogTimer.schedule(new Runnable() {
+            public void run() {
+                try {
+                    long now = System.nanoTime();
+                    int suppressed = limiter.pollScheduled(now);
+                    if (suppressed > 0) {
+                        println(currentConfiguration, level, tag, suppressed
+                                + " messages suppressed by the rate limit", null);
+                    }
+                    if (limiter.hasSuppressed() && limiter.schedule()) {
+                        scheduleSuppressed(limiter, level, tag, now);
+                    }
+                } catch (Throwable e) {
+                    // Ignore
+                }
+            }
+        }, TimeUnit.NANOSECONDS.toMillis(limiter.getSummaryDelay(now)) + 1);
+    }
+
+    /**
+     * Sends a message to the Android Log. Assert messages are delegated to the
+     * <code>wtf</code> methods if enabled.
+     *
+     * @param config
+     *            the configuration
+     * @param level
+     *            the log level
+     * @param tag
+     *            the tag
+     * @param msg
+     *            the message
+     * @param tr
+     *            the error, can be <code>null</code>
+     * @return the number of bytes written.
+     */
+    private static int println(LogConfiguration config, int level, String tag, String msg, Throwable tr) {
+        switch (level) {
+            case Constants.VERBOSE:
+                return tr == null ? android.util.Log.v(tag, msg) : android.util.Log.v(tag, msg, tr);
+            case Constants.DEBUG:
+                return tr == null ? android.util.Log.d(tag, msg) : android.util.Log.d(tag, msg, tr);
+            case Constants.INFO:
+                return tr == null ? android.util.Log.i(tag, msg) : android.util.Log.i(tag, msg, tr);
+            case Constants.WARN:
+                return tr == null ? android.util.Log.w(tag, msg) : android.util.Log.w(tag, msg, tr);
+            case Constants.ERROR:
+                return tr == null ? android.util.Log.e(tag, msg) : android.util.Log.e(tag, msg, tr);
+            case Constants.ASSERT:
+                if (config.useWTF) {
+                    try {
+                        if (tr == null) {
+                            return (Integer) wtfTagMessageMethod.invoke(null,
+                                    new Object[] { tag, msg });
+                        }
+                        return (Integer) wtfTagMessageErrorMethod.invoke(null,
+                                new Object[] { tag, msg, tr });
+                    } catch (Exception e) {
+                        // Use the Constants.ASSERT level.
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        if (tr == null) {
+            return LogHelper.println(level, tag, msg);
+        }
+        return LogHelper.println(level, tag, msg + '\n'
+                + LogHelper.getStackTraceString(tr));
+    }
+
+    /**
+     * Adds a log entry to the collected entry list. This method managed the
+     * maximum number of entries and triggers report if the entry priority is
+     * superior or equals to the report trigger level.
+     *
+     * @param config
+     *            the configuration read by the calling log method
+     * @param level
+     *            the log level of the entry
+     * @param tag
+     *            the tag
+     * @param message
      *            the message
      * @param err
      *            the error message
-     */
-    private static synchronized void collectLogEntry(int level, String tag, final String message,
-            final Throwable err) {
-        if (!isReportable(level)) {
+     * @param trigger
+     *            whether the entry triggers a report if its level reaches the
+     *            trigger level
+     */
+    private static void collectLogEntry(LogConfiguration config, int level, String tag,
+            final String message, final Throwable err, boolean trigger) {
+        // Decided on the configuration snapshot, without locking.
+        if (!config.isReportable(level)) {
             return;
         }
 
-        if (maxOfEntriesInReports > 0
-                && entries.size() == maxOfEntriesInReports) {
-            entries.remove(0); // Remove the first element.
+        // Stored raw, the entry is rendered when a report is built.
+        config.entries.add(level, config.addTimestampToReportLogs ? System.currentTimeMillis() : -1,
+                tag, message, err);
+
+        if (trigger && level >= config.reportTriggerLevel) {
+            reportInBackground(message, err);
+        }
+    }
+
+    /**
+     * Queues the report of the entries recovered from a previous process.
+     * Sent on its own, not coalesced with the reports of this process.
+     *
+     * @param message
+     *            the message
+     * @param entries
+     *            the recovered entries
+     */
+    private static void reportInBackground(final String message, final List<String> entries) {
+        ReportDispatcher dispatcher = currentConfiguration.reportDispatcher;
+        if (dispatcher == null) {
+            return;
         }
-        entries.add(LogHelper.print(level, tag, message, err, addTimestampToReportLogs));
+        dispatcher.dispatch(new Runnable() {
+            public void run() {
+                try {
+                    report(currentConfiguration, message, null, null, entries);
+                } catch (Throwable e) {
+                    // Ignore
+                }
+            }
+        });
+    }
 
-        if (level >= reportTriggerLevel) {
-            // Must be in another thread
-            new Thread(new Runnable() {
+    /**
+     * Queues a report, sent by the report dispatcher thread.
+     *
+     * @param message
+     *            the message
+     * @param err
+     *            the error, can be <code>null</code>
+     */
+    private static void reportInBackground(final String message, final Throwable err) {
+        LogConfiguration config = currentConfiguration;
+        ReportDispatcher dispatcher = config.reportDispatcher;
+        if (dispatcher == null) {
+            return;
+        }
+        final ReportCoalescer coalescer = config.reportCoalescer;
+        if (coalescer != null) {
+            final ReportCoalescer.Batch batch = coalescer.add(message, err);
+            if (batch == null) {
+                // Sent with the open batch.
+                return;
+            }
+            // Queued at the end of the window, no thread waits meanwhile.
+            LogTimer.schedule(new Runnable() {
                 public void run() {
-                    try {
-                        report(message, err);
-                    } catch (Throwable e) {
-                        // Ignore
+                    coalescer.close(batch);
+                    ReportDispatcher current = currentConfiguration.reportDispatcher;
+                    if (current == null) {
+                        return;
                     }
+                    current.dispatch(new Runnable() {
+                        public void run() {
+                            try {
+                                ReportCoalescer.Trigger first = batch.triggers.get(0);
+                                report(currentConfiguration, first.message, batch.getError(),
+                                        batch, null);
+                            } catch (Throwable e) {
+                                // Ignore
+                            }
+                        }
+                    }, batch.count);
                 }
-            }).start();
+            }, coalescer.getDelay(batch));
+            return;
         }
+        // Must be in another thread
+        dispatcher.dispatch(new Runnable() {
+            public void run() {
+                try {
+                    report(message, err);
+                } catch (Throwable e) {
+                    // Ignore
+                }
+            }
+        });
     }
 
+    /**
+     * Gets the number of report triggers of the log calls dropped because too
+     * many reports were waiting to be sent. See
+     * {@link Constants#ANDROLOG_REPORT_QUEUE}. A dropped report coalescing
+     * several triggers counts all of them.
+     *
+     * @return the number of dropped report triggers since the reporting was
+     *         configured
+     */
+    public static long getDroppedReports() {
+        ReportDispatcher dispatcher = currentConfiguration.reportDispatcher;
+        return dispatcher == null ? 0 : dispatcher.getDropped();
+    }
     /**
      * Gets the list of reported entries.
      *
@@ -1261,11 +2784,39 @@ public class Log {
      *         were collected.
      */
     public static List<String> getReportedEntries() {
+        EntryStore entries = currentConfiguration.entries;
         if (entries != null) {
-            return new ArrayList<String>(entries);
+            return entries.getEntries();
         } else {
             return null;
         }
     }
 
+    /**
+     * Passes the reported entries to a visitor, oldest first, without copying
+     * them in a list. The entries are read from the store while the visitor
+     * runs; the logging threads are not blocked. While a report built from
+     * a snapshot of the entries is sent, such as the report of the entries
+     * recovered from a previous process, its reporters visit the snapshot.
+     *
+     * @param visitor
+     *            the visitor
+     * @return <code>false</code> if no entries were collected
+     */
+    public static boolean visitReportedEntries(EntryVisitor visitor) {
+        List<String> snapshot = reportedSnapshot.get();
+        if (snapshot != null) {
+            for (String entry : snapshot) {
+                visitor.visit(entry);
+            }
+            return true;
+        }
+        EntryStore entries = currentConfiguration.entries;
+        if (entries == null) {
+            return false;
+        }
+        entries.accept(visitor);
+        return true;
+    }
+
 }
@@ -0,0 +1,453 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.content.Context;
+import de.akquinet.android.androlog.reporter.EnhancedReporter;
+import de.akquinet.android.androlog.reporter.Report;
+import de.akquinet.android.androlog.reporter.ReportFactory;
+import de.akquinet.android.androlog.reporter.Reporter;
+
+/**
+ * Immutable snapshot of the {@link Log} configuration. {@link Log} publishes
+ * a new snapshot each time the configuration changes, so a log call reads a
+ * consistent configuration without locking.
+ */
+final class LogConfiguration {
+
+    /**
+     * Maximum number of tags kept in {@link #resolvedLogLevels}.
+     */
+    private static final int MAX_RESOLVED_LOG_LEVELS = 1024;
+
+    /**
+     * Source of the snapshot generations.
+     */
+    private static final AtomicInteger generations = new AtomicInteger();
+
+    /**
+     * Generation of the snapshot, incremented for each built snapshot.
+     */
+    final int generation;
+
+    /**
+     * Global activation flag.
+     */
+    final boolean activated;
+
+    /**
+     * Default log level.
+     */
+    final int defaultLogLevel;
+
+    /**
+     * Default report level.
+     */
+    final int defaultReportLevel;
+
+    /**
+     * The configured log levels.
+     */
+    final Map<String, Integer> logLevels;
+
+    /**
+     * Sets to true if the wtf method delegates on the Android Log wtf methods
+     * which may cause the process to terminate.
+     */
+    final boolean useWTF;
+
+    /**
+     * Flag indicating if the reporting is activated.
+     */
+    final boolean reportingActivated;
+
+    /**
+     * Flag enabling / Disabling the log entry collection.
+     */
+    final boolean enableLogEntryCollection;
+
+    /**
+     * Maximum number of entry to store.
+     */
+    final int maxOfEntriesInReports;
+
+    /**
+     * <code>true</code> if logs collected for the report should have a
+     * timestamp added, <code>false</code> otherwise.
+     */
+    final boolean addTimestampToReportLogs;
+
+    /**
+     * The list of reporters.
+     */
+    final List<Reporter> reporters;
+
+    /**
+     * The report factory; must be set to use
+     * {@link EnhancedReporter#send(Context, Report)}, or <code>null</code> to
+     * use the default & call {@link Reporter#send(Context, String, Throwable)}
+     */
+    final ReportFactory reportFactory;
+
+    /**
+     * Log level triggering reports
+     */
+    final int reportTriggerLevel;
+
+    /**
+     * The default timeout of the reporters in milliseconds, 0 or less to
+     * wait until they complete.
+     */
+    final long reportTimeout;
+
+    /**
+     * The timeouts of the reporters by class name, in milliseconds.
+     */
+    final Map<String, Long> reporterTimeouts;
+
+    /**
+     * Is the propagation to the default uncaught exception handler enabled ?
+     */
+    final boolean exceptionHandlerPropagation;
+
+    /**
+     * The Android context.
+     */
+    final Context context;
+
+    /**
+     * The buffer of log entries, <code>null</code> if the collection is
+     * disabled. The list is shared with the following snapshots until the
+     * collection is configured again.
+     */
+    final EntryStore entries;
+
+    /**
+     * The dispatcher of the reports triggered by the log calls,
+     * <code>null</code> if the collection is disabled.
+     */
+    final ReportDispatcher reportDispatcher;
+
+    /**
+     * Groups the triggered reports, <code>null</code> if each trigger sends a
+     * report.
+     */
+    final ReportCoalescer reportCoalescer;
+
+    /**
+     * The class names escaped when computing the caller of the log methods,
+     * in addition to the Androlog classes.
+     */
+    final Set<String> escapedCallers;
+
+    /**
+     * <code>true</code> if the caller method and line are added to the
+     * messages logged without tag.
+     */
+    final boolean callerDetails;
+
+    /**
+     * Finds the caller of the log methods logging without tag.
+     */
+    final CallerResolver callerResolver;
+
+    /**
+     * <code>true</code> if the tags computed from class names are abbreviated
+     * to fit the Android Log tag length.
+     */
+    final boolean abbreviateTags;
+
+    /**
+     * Computes and caches the tags of the classes logging messages. Shared
+     * with the following snapshots abbreviating the tags the same way.
+     */
+    final ClassTagCache classTags;
+
+    /**
+     * The rate limits of the messages sent to the Android Log, by tag or tag
+     * prefix. The limiters are shared with the following snapshots.
+     */
+    final Map<String, RateLimiter> rateLimits;
+
+    /**
+     * Index of {@link #rateLimits}, <code>null</code> if there are no limits.
+     */
+    private final TagTrie<RateLimiter> rateLimitIndex;
+
+    /**
+     * Collapses the messages repeated by a thread, <code>null</code> if
+     * disabled. Shared with the following snapshots.
+     */
+    final RepeatCollapser repeatCollapser;
+
+    /**
+     * Index of {@link #logLevels} used to find the level of a tag.
+     */
+    private final TagTrie<Integer> logLevelIndex;
+
+    /**
+     * Cache of the effective log level of each tag (configured level of the
+     * tag or of its closest parent, or the default level). As the snapshot
+     * is immutable, the cache never needs to be invalidated.
+     */
+    private final Map<String, Integer> resolvedLogLevels = new ConcurrentHashMap<String, Integer>();
+
+    private LogConfiguration(Builder builder, int generation) {
+        this.generation = generation;
+        this.activated = builder.activated;
+        this.defaultLogLevel = builder.defaultLogLevel;
+        this.defaultReportLevel = builder.defaultReportLevel;
+        this.logLevels = Collections.unmodifiableMap(new HashMap<String, Integer>(builder.logLevels));
+        this.useWTF = builder.useWTF;
+        this.reportingActivated = builder.reportingActivated;
+        this.enableLogEntryCollection = builder.enableLogEntryCollection;
+        this.maxOfEntriesInReports = builder.maxOfEntriesInReports;
+        this.addTimestampToReportLogs = builder.addTimestampToReportLogs;
+        this.reporters = Collections.unmodifiableList(new ArrayList<Reporter>(builder.reporters));
+        this.reportFactory = builder.reportFactory;
+        this.reportTriggerLevel = builder.reportTriggerLevel;
+        this.reportTimeout = builder.reportTimeout;
+        this.reporterTimeouts = Collections.unmodifiableMap(new HashMap<String, Long>(builder.reporterTimeouts));
+        this.exceptionHandlerPropagation = builder.exceptionHandlerPropagation;
+        this.context = builder.context;
+        this.entries = builder.entries;
+        this.reportDispatcher = builder.reportDispatcher;
+        this.reportCoalescer = builder.reportCoalescer;
+        this.escapedCallers = Collections.unmodifiableSet(new HashSet<String>(builder.escapedCallers));
+        this.callerDetails = builder.callerDetails;
+        this.callerResolver = new CallerResolver(escapedCallers, callerDetails);
+        this.abbreviateTags = builder.abbreviateTags;
+        this.classTags = builder.classTags != null
+                && builder.classTags.isAbbreviating() == abbreviateTags ? builder.classTags
+                : new ClassTagCache(abbreviateTags);
+        this.rateLimits = Collections.unmodifiableMap(new HashMap<String, RateLimiter>(builder.rateLimits));
+        this.rateLimitIndex = rateLimits.isEmpty() ? null : new TagTrie<RateLimiter>(rateLimits);
+        this.repeatCollapser = builder.repeatCollapser;
+        this.logLevelIndex = new TagTrie<Integer>(logLevels);
+    }
+
+    /**
+     * Checks whether a log for the specified tag is loggable at the
+     * specified level.
+     *
+     * @param tag
+     *            The tag to check.
+     * @param level
+     *            The level to check.
+     * @return Whether or not that this is allowed to be logged.
+     * @see Log#isLoggable(String, int)
+     */
+    boolean isLoggable(String tag, int level) {
+        if (!activated && level != Constants.ASSERT) {
+            return false;
+        }
+        return level >= getEffectiveLogLevel(tag);
+    }
+
+    /**
+     * Checks whether a log is reportable at the specified level.
+     *
+     * @param level
+     *            The level to check.
+     * @return Whether or not that this is allowed to be reported.
+     * @see Log#isReportable(int)
+     */
+    boolean isReportable(int level) {
+        return reportingActivated && enableLogEntryCollection
+                && level >= defaultReportLevel;
+    }
+
+    /**
+     * Gets the level applying to the given tag. The result is cached, so
+     * the tag hierarchy is only walked on the first lookup of a tag.
+     *
+     * @param tag
+     *            the tag
+     * @return the configured level of the tag or of its closest parent, or
+     *         the default log level.
+     */
+    int getEffectiveLogLevel(String tag) {
+        if (tag == null) {
+            // The concurrent map does not support null keys.
+            return defaultLogLevel;
+        }
+        Integer logLevel = resolvedLogLevels.get(tag);
+        if (logLevel == null) {
+            logLevel = logLevelIndex.get(tag);
+            if (logLevel == null) {
+                logLevel = defaultLogLevel;
+            }
+            if (resolvedLogLevels.size() < MAX_RESOLVED_LOG_LEVELS) {
+                resolvedLogLevels.put(tag, logLevel);
+            }
+        }
+        return logLevel;
+    }
+
+    /**
+     * Gets the timeouts of the reporters.
+     *
+     * @return the timeout of each reporter in milliseconds, in the order of
+     *         {@link #reporters}
+     */
+    long[] getReportTimeouts() {
+        long[] timeouts = new long[reporters.size()];
+        for (int i = 0; i < timeouts.length; i++) {
+            Long timeout = reporterTimeouts.get(reporters.get(i).getClass().getName());
+            timeouts[i] = timeout != null ? timeout : reportTimeout;
+        }
+        return timeouts;
+    }
+
+    /**
+     * Gets the rate limit applying to the given tag.
+     *
+     * @param tag
+     *            the tag
+     * @return the limiter of the tag or of its closest parent, or
+     *         <code>null</code> if the tag is not limited.
+     */
+    RateLimiter getRateLimiter(String tag) {
+        if (rateLimitIndex == null) {
+            return null;
+        }
+        return rateLimitIndex.get(tag);
+    }
+
+    /**
+     * Creates a builder initialized with this configuration.
+     *
+     * @return the builder
+     */
+    Builder edit() {
+        return new Builder(this);
+    }
+
+    /**
+     * Mutable form of the configuration, used to compute the next snapshot.
+     */
+    static final class Builder {
+
+        boolean activated = true;
+
+        int defaultLogLevel = Constants.INFO;
+
+        int defaultReportLevel = Constants.INFO;
+
+        final Map<String, Integer> logLevels = new HashMap<String, Integer>();
+
+        boolean useWTF;
+
+        boolean reportingActivated;
+
+        boolean enableLogEntryCollection;
+
+        int maxOfEntriesInReports = 25;
+
+        boolean addTimestampToReportLogs;
+
+        final List<Reporter> reporters = new ArrayList<Reporter>(0);
+
+        ReportFactory reportFactory;
+
+        int reportTriggerLevel = Constants.ASSERT;
+
+        long reportTimeout;
+
+        final Map<String, Long> reporterTimeouts = new HashMap<String, Long>();
+
+        boolean exceptionHandlerPropagation = true;
+
+        Context context;
+
+        EntryStore entries;
+
+        ReportDispatcher reportDispatcher;
+
+        ReportCoalescer reportCoalescer;
+
+        final Set<String> escapedCallers = new HashSet<String>();
+
+        boolean callerDetails;
+
+        boolean abbreviateTags;
+
+        /**
+         * The tag cache of the previous snapshot, reused if the abbreviation
+         * did not change.
+         */
+        ClassTagCache classTags;
+
+        final Map<String, RateLimiter> rateLimits = new HashMap<String, RateLimiter>();
+
+        RepeatCollapser repeatCollapser;
+
+        /**
+         * Creates a builder holding the default configuration.
+         */
+        Builder() {
+            // Defaults are set by the field initializers.
+        }
+
+        private Builder(LogConfiguration from) {
+            activated = from.activated;
+            defaultLogLevel = from.defaultLogLevel;
+            defaultReportLevel = from.defaultReportLevel;
+            logLevels.putAll(from.logLevels);
+            useWTF = from.useWTF;
+            reportingActivated = from.reportingActivated;
+            enableLogEntryCollection = from.enableLogEntryCollection;
+            maxOfEntriesInReports = from.maxOfEntriesInReports;
+            addTimestampToReportLogs = from.addTimestampToReportLogs;
+            reporters.addAll(from.reporters);
+            reportFactory = from.reportFactory;
+            reportTriggerLevel = from.reportTriggerLevel;
+            reportTimeout = from.reportTimeout;
+            reporterTimeouts.putAll(from.reporterTimeouts);
+            exceptionHandlerPropagation = from.exceptionHandlerPropagation;
+            context = from.context;
+            entries = from.entries;
+            reportDispatcher = from.reportDispatcher;
+            reportCoalescer = from.reportCoalescer;
+            escapedCallers.addAll(from.escapedCallers);
+            callerDetails = from.callerDetails;
+            abbreviateTags = from.abbreviateTags;
+            classTags = from.classTags;
+            rateLimits.putAll(from.rateLimits);
+            repeatCollapser = from.repeatCollapser;
+        }
+
+        /**
+         * Creates the snapshot. Its generation is greater than the generation
+         * of any previously built snapshot.
+         *
+         * @return the new configuration
+         */
+        LogConfiguration build() {
+            return new LogConfiguration(this, generations.incrementAndGet());
+        }
+    }
+
+}
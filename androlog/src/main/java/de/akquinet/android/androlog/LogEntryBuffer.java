@@ -0,0 +1,314 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded buffer of the log entries collected for the reports. When the
+ * buffer is full, adding an entry evicts the oldest one. The buffer is
+ * non-blocking: logging threads never wait for each other, nor for a report
+ * reading the entries.
+ * <p>
+ * Entries are stored raw: level, time, tag, message and error. They are only
+ * rendered to text, by an {@link EntryRenderer},
+ * when {@link #getEntries()} is called to build a report, so collecting an
+ * entry neither formats dates nor prints stack traces.
+ * </p>
+ * <p>
+ * A bounded buffer is a set of parallel arrays allocated once, each index
+ * being a slot. A writer takes the next sequence number with a single
+ * atomic increment. Writers of the same lap get distinct slots; a writer
+ * preempted long enough to be lapped competes with the later writer of its
+ * slot, so the slot is claimed with a compare and set, the most recent
+ * sequence winning. The writer owning the slot marks it as being written,
+ * stores the fields and publishes the sequence number of the slot. The
+ * stores are volatile, <code>lazySet</code> not being available before
+ * Android 2.3.
+ * A reader only returns the entries of the slots whose published sequence is
+ * the expected one before and after reading the fields, so it never returns
+ * an entry being written nor an entry of another lap, and never blocks the
+ * writers.
+ * </p>
+ * <p>
+ * The writers do not lock, but they all increment the same sequence
+ * counter, so its cache line is contended across cores. The ring is not
+ * expected to scale linearly with the number of logging threads.
+ * </p>
+ */
+final class LogEntryBuffer implements EntryStore {
+
+    /**
+     * Published value of a slot being written.
+     */
+    private static final long WRITING = -1;
+
+    /**
+     * Number of attempts to claim a slot being written by another writer
+     * before dropping the entry.
+     */
+    private static final int MAX_CLAIM_ATTEMPTS = 64;
+
+    /**
+     * The levels of the entries of a bounded buffer, <code>null</code> if
+     * unbounded. The other slot arrays are <code>null</code> too.
+     */
+    private final AtomicIntegerArray levels;
+
+    /**
+     * The times of the entries, negative if not timestamped.
+     */
+    private final AtomicLongArray times;
+
+    private final AtomicReferenceArray<String> tags;
+
+    private final AtomicReferenceArray<String> messages;
+
+    private final AtomicReferenceArray<Throwable> errors;
+
+    /**
+     * The {@link System#nanoTime()} of the entries, <code>null</code> if the
+     * buffer is not ordered by time.
+     */
+    private final AtomicLongArray keys;
+
+    /**
+     * The sequence number, plus one, of the entry held by each slot; 0 if
+     * the slot was never written, {@link #WRITING} while it is written.
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * The next sequence number to claim. The entry of sequence
+     * <code>s</code> is stored in the slot <code>s % capacity</code>.
+     */
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * The entries of an unbounded buffer, <code>null</code> if bounded.
+     */
+    private final Queue<LogEvent> unbounded;
+
+    /**
+     * The maximum number of entries, 0 or less for no limit.
+     */
+    private final int capacity;
+
+    /**
+     * Creates the buffer.
+     *
+     * @param capacity
+     *            the maximum number of entries, 0 or less for no limit
+     */
+    LogEntryBuffer(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * Creates the buffer.
+     *
+     * @param capacity
+     *            the maximum number of entries, 0 or less for no limit
+     * @param timed
+     *            <code>true</code> to record the {@link System#nanoTime()} of
+     *            the entries, used as key to merge several buffers.
+     */
+    LogEntryBuffer(int capacity, boolean timed) {
+        this.capacity = capacity;
+        if (capacity > 0) {
+            keys = timed ? new AtomicLongArray(capacity) : null;
+            levels = new AtomicIntegerArray(capacity);
+            times = new AtomicLongArray(capacity);
+            tags = new AtomicReferenceArray<String>(capacity);
+            messages = new AtomicReferenceArray<String>(capacity);
+            errors = new AtomicReferenceArray<Throwable>(capacity);
+            published = new AtomicLongArray(capacity);
+            unbounded = null;
+        } else {
+            keys = null;
+            levels = null;
+            times = null;
+            tags = null;
+            messages = null;
+            errors = null;
+            published = null;
+            unbounded = new ConcurrentLinkedQueue<LogEvent>();
+        }
+    }
+
+    /**
+     * Adds an entry, evicting the oldest one if the buffer is full.
+     *
+     * @param level
+     *            the log level
+     * @param time
+     *            the time of the log call in milliseconds, negative to omit
+     *            the timestamp
+     * @param tag
+     *            the tag
+     * @param message
+     *            the message
+     * @param error
+     *            the error, can be <code>null</code>
+     */
+    public void add(int level, long time, String tag, String message, Throwable error) {
+        if (levels == null) {
+            unbounded.offer(new LogEvent(next.getAndIncrement(), level, time, tag, message, error));
+            return;
+        }
+        long sequence = next.getAndIncrement();
+        int index = (int) (sequence % capacity);
+        if (!claim(index, sequence)) {
+            return;
+        }
+        if (keys != null) {
+            keys.set(index, System.nanoTime());
+        }
+        levels.set(index, level);
+        times.set(index, time);
+        tags.set(index, tag);
+        messages.set(index, message);
+        errors.set(index, error);
+        published.set(index, sequence + 1);
+    }
+
+    /**
+     * Claims a slot for writing. Writers of different laps may target the
+     * same slot when a writer is preempted between taking its sequence number
+     * and writing. The most recent sequence wins: a writer overwrites the
+     * entries of the previous laps, and drops its entry if a writer of a
+     * later lap already claimed the slot. A writer finding the slot being
+     * written waits for a few yields, then drops its entry.
+     *
+     * @param index
+     *            the slot
+     * @param sequence
+     *            the sequence number of the entry
+     * @return <code>true</code> if the slot is marked {@link #WRITING} by the
+     *         caller, <code>false</code> if the entry is dropped
+     */
+    private boolean claim(int index, long sequence) {
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            long current = published.get(index);
+            if (current == WRITING) {
+                Thread.yield();
+            } else if (current > sequence) {
+                // Lapped: the slot holds a more recent entry.
+                return false;
+            } else if (published.compareAndSet(index, current, WRITING)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets a copy of the entries rendered as text, oldest first. The copy
+     * holds the entries published when it is taken; the entries still being
+     * written are skipped.
+     *
+     * @return the entries
+     */
+    public List<String> getEntries() {
+        EntryList entries = new EntryList();
+        accept(entries);
+        return entries;
+    }
+
+    /**
+     * Visits the entries, oldest first. Each entry is read with the same
+     * checks as {@link #collect(List)}, and rendered before the next one is
+     * read; an entry overwritten by a writer before the walk reaches it is
+     * skipped.
+     *
+     * @param visitor
+     *            the visitor
+     */
+    public void accept(EntryVisitor visitor) {
+        EntryRenderer renderer = new EntryRenderer();
+        if (levels == null) {
+            for (LogEvent event : unbounded) {
+                visitor.visit(renderer.render(event));
+            }
+            return;
+        }
+        long end = next.get();
+        for (long sequence = Math.max(0, end - capacity); sequence < end; sequence++) {
+            LogEvent event = read(sequence);
+            if (event != null) {
+                visitor.visit(renderer.render(event));
+            }
+        }
+    }
+
+    /**
+     * Copies the published entries, oldest first, without rendering them.
+     * The key of the events is their {@link System#nanoTime()} if the buffer
+     * is timed, their sequence number otherwise.
+     *
+     * @param events
+     *            the list receiving the entries
+     */
+    void collect(List<LogEvent> events) {
+        if (levels == null) {
+            events.addAll(unbounded);
+            return;
+        }
+        long end = next.get();
+        long begin = Math.max(0, end - capacity);
+        for (long sequence = begin; sequence < end; sequence++) {
+            LogEvent event = read(sequence);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+    }
+
+    /**
+     * Reads the entry of the given sequence number.
+     *
+     * @param sequence
+     *            the sequence number
+     * @return the entry, or <code>null</code> if it is not published yet or
+     *         already overwritten
+     */
+    private LogEvent read(long sequence) {
+        int index = (int) (sequence % capacity);
+        if (published.get(index) != sequence + 1) {
+            // Not published yet, or already overwritten by a later lap.
+            return null;
+        }
+        long key = keys != null ? keys.get(index) : sequence;
+        int level = levels.get(index);
+        long time = times.get(index);
+        String tag = tags.get(index);
+        String message = messages.get(index);
+        Throwable error = errors.get(index);
+        // A field stored by the next writer of the slot is stored after its
+        // claim, so reading it makes the claim visible here: the slot is
+        // skipped unless all the fields belong to the same write.
+        if (published.get(index) != sequence + 1) {
+            return null;
+        }
+        return new LogEvent(key, level, time, tag, message, error);
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+/**
+ * A log entry read from an {@link EntryStore}, not rendered yet.
+ */
+final class LogEvent {
+
+    /**
+     * The ordering key of the entry in its buffer: its sequence number, or
+     * the {@link System#nanoTime()} of the log call in the buffers ordered by
+     * time.
+     */
+    final long key;
+
+    final int level;
+
+    /**
+     * The time of the log call in milliseconds, negative if not timestamped.
+     */
+    final long time;
+
+    final String tag;
+
+    final String message;
+
+    final Throwable error;
+
+    LogEvent(long key, int level, long time, String tag, String message, Throwable error) {
+        this.key = key;
+        this.level = level;
+        this.time = time;
+        this.tag = tag;
+        this.message = message;
+        this.error = error;
+    }
+
+}
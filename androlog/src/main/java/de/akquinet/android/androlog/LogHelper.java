@@ -19,9 +19,10 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.List;
 
+import android.app.ActivityManager;
+import android.app.ActivityManager.RunningAppProcessInfo;
 import android.content.Context;
 import android.content.res.AssetManager;
 import android.os.Environment;
@@ -30,10 +31,46 @@ import android.text.format.DateFormat;
 public class LogHelper {
 
     /**
-     * format for {@link #print(int, String, String, Throwable, boolean)} timestamps; note that {@link DateFormat} 
-     * doesn't support all the formatting characters used
+     * formatters of the {@link #print(int, String, String, Throwable, boolean)} timestamps, one per
+     * thread as they are not thread safe; note that {@link DateFormat} doesn't support all the
+     * formatting characters used
      */
-    private static final String TIMESTAMP_PATTERN = "yyyy-MM-dd HH:mm:ss,SSS'/'";
+    private static final ThreadLocal<TimestampFormat> TIMESTAMP_FORMATS = new ThreadLocal<TimestampFormat>() {
+        @Override
+        protected TimestampFormat initialValue() {
+            return new TimestampFormat();
+        }
+    };
+
+    /**
+     * Parses a size: a number of bytes, optionally followed by
+     * <code>k</code> (kilobytes) or <code>m</code> (megabytes).
+     *
+     * @param value
+     *            the size, such as <code>256k</code>
+     * @return the number of bytes, or -1 if the value is not valid
+     */
+    static long parseSize(String value) {
+        if (value == null) {
+            return -1;
+        }
+        String v = value.trim().toLowerCase();
+        long unit = 1;
+        if (v.endsWith("k")) {
+            unit = 1024;
+        } else if (v.endsWith("m")) {
+            unit = 1024 * 1024;
+        }
+        if (unit > 1) {
+            v = v.substring(0, v.length() - 1).trim();
+        }
+        try {
+            long size = Long.parseLong(v);
+            return size > 0 ? size * unit : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
 
     /**
      * Parses the given level to get the log level. This method supports both
@@ -85,16 +122,8 @@ public class LogHelper {
      * @return the qualified name of the first non escaped class on the stack.
      */
     public static String getCaller() {
-        StackTraceElement[] stacks = Thread.currentThread().getStackTrace();
-        if (stacks != null) {
-            for (int i = 0; i < stacks.length; i++) {
-                String cn = stacks[i].getClassName();
-                if (cn != null && !Constants.CLASSNAME_TO_ESCAPE.contains(cn)) {
-                    return cn;
-                }
-            }
-        }
-        return null;
+        StackTraceElement caller = Log.getConfiguration().callerResolver.getCaller();
+        return caller == null ? null : caller.getClassName();
     }
 
     /**
@@ -158,6 +187,35 @@ public class LogHelper {
 
     }
 
+    /**
+     * Gets the name of the current process, such as
+     * <code>com.acme.app:remote</code> for a process declared as
+     * <code>:remote</code>.
+     *
+     * @param context
+     *            the Android context to use
+     * @return the process name or <code>null</code> if it cannot be found.
+     */
+    protected static String getProcessName(Context context) {
+        if (context == null) {
+            return null;
+        }
+        ActivityManager manager = (ActivityManager) context
+                .getSystemService(Context.ACTIVITY_SERVICE);
+        List<RunningAppProcessInfo> processes = manager == null ? null : manager
+                .getRunningAppProcesses();
+        if (processes == null) {
+            return null;
+        }
+        int pid = android.os.Process.myPid();
+        for (RunningAppProcessInfo process : processes) {
+            if (process.pid == pid) {
+                return process.processName;
+            }
+        }
+        return null;
+    }
+
     /**
      * Handy function to get a loggable stack trace from a Throwable
      * 
@@ -201,6 +259,47 @@ public class LogHelper {
      * @return The String form.
      */
     public static String print(int priority, String tag, String msg, Throwable tr, boolean addTimestamp) {
+        return print(priority, tag, msg, tr, addTimestamp ? System.currentTimeMillis() : -1);
+    }
+
+    /**
+     * Gets a String form of the log data recorded at the given time.
+     *
+     * @param priority
+     *            The priority/type of this log message
+     * @param tag
+     *            Used to identify the source of a log message.
+     * @param msg
+     *            The message you would like logged.
+     * @param tr
+     *            The error, can be <code>null</code>
+     * @param timestamp
+     *            the time of the log call in milliseconds, or a negative value
+     *            to omit the timestamp
+     * @return The String form.
+     */
+    static String print(int priority, String tag, String msg, Throwable tr, long timestamp) {
+        return format(priority, tag, msg, tr == null ? null : getStackTraceString(tr), timestamp);
+    }
+
+    /**
+     * Gets a String form of the log data recorded at the given time, with an
+     * already rendered stack trace.
+     *
+     * @param priority
+     *            The priority/type of this log message
+     * @param tag
+     *            Used to identify the source of a log message.
+     * @param msg
+     *            The message you would like logged.
+     * @param trace
+     *            The rendered error, can be <code>null</code>
+     * @param timestamp
+     *            the time of the log call in milliseconds, or a negative value
+     *            to omit the timestamp
+     * @return The String form.
+     */
+    static String format(int priority, String tag, String msg, String trace, long timestamp) {
         // Compute the letter for the given priority
         String p = "X"; // X => Unknown
         switch (priority) {
@@ -220,9 +319,15 @@ public class LogHelper {
                 p = "F";
                 break;
         }
-        CharSequence timestamp = addTimestamp ? new SimpleDateFormat(TIMESTAMP_PATTERN).format(new Date()) : "";
-        String base = p + "/" + timestamp + tag + ": " + msg;
-        return tr == null ? base : base + "\n" + getStackTraceString(tr);
+        StringBuilder base = new StringBuilder(p).append('/');
+        if (timestamp >= 0) {
+            TIMESTAMP_FORMATS.get().format(timestamp, base);
+        }
+        base.append(tag).append(": ").append(msg);
+        if (trace != null) {
+            base.append('\n').append(trace);
+        }
+        return base.toString();
     }
 
 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the delayed tasks of Androlog, such as the summaries of the messages
+ * repeated by threads which stopped logging, from a single daemon thread.
+ * The thread is started by the first scheduled task and stops when no task
+ * is pending, so an idle process is not woken up.
+ * <p>
+ * This is a minimal timer rather than a
+ * <code>ScheduledThreadPoolExecutor</code>, whose core thread cannot time out
+ * before Android 2.3.
+ * </p>
+ */
+final class LogTimer {
+
+    /**
+     * Time the idle thread waits for a task before stopping, in milliseconds.
+     */
+    private static final long KEEP_ALIVE = 30000;
+
+    private static final Object LOCK = new Object();
+
+    /**
+     * The pending tasks, guarded by {@link #LOCK}.
+     */
+    private static final PriorityQueue<Task> TASKS = new PriorityQueue<Task>();
+
+    /**
+     * The timer thread, <code>null</code> if stopped. Guarded by
+     * {@link #LOCK}.
+     */
+    private static Thread thread;
+
+    /**
+     * Orders the tasks of the same time, guarded by {@link #LOCK}.
+     */
+    private static long sequence;
+
+    private LogTimer() {
+        // Static methods only.
+    }
+
+    /**
+     * Runs a task once the delay elapsed. The task must be short, it delays
+     * the other tasks.
+     *
+     * @param task
+     *            the task
+     * @param delay
+     *            the delay in milliseconds
+     */
+    static void schedule(Runnable task, long delay) {
+        long time = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(delay, 0));
+        synchronized (LOCK) {
+            TASKS.add(new Task(task, time, sequence++));
+            if (thread == null) {
+                thread = new Thread(new Runnable() {
+                    public void run() {
+                        runTasks();
+                    }
+                }, "androlog-timer");
+                thread.setDaemon(true);
+                thread.start();
+            } else {
+                LOCK.notify();
+            }
+        }
+    }
+
+    /**
+     * Runs the tasks as they are due, until no task is scheduled for
+     * {@link #KEEP_ALIVE}.
+     */
+    private static void runTasks() {
+        while (true) {
+            Runnable task = next();
+            if (task == null) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable e) {
+                // A failing task does not stop the timer.
+            }
+        }
+    }
+
+    /**
+     * Waits for the next due task.
+     *
+     * @return the task, <code>null</code> if the thread stopped as it was idle
+     */
+    private static Runnable next() {
+        synchronized (LOCK) {
+            long idleSince = System.nanoTime();
+            while (true) {
+                long now = System.nanoTime();
+                Task head = TASKS.peek();
+                long wait;
+                if (head == null) {
+                    wait = KEEP_ALIVE - TimeUnit.NANOSECONDS.toMillis(now - idleSince);
+                    if (wait <= 0) {
+                        thread = null;
+                        return null;
+                    }
+                } else if (head.time - now <= 0) {
+                    return TASKS.poll().task;
+                } else {
+                    // Rounded up, so the task is due when waking up.
+                    wait = TimeUnit.NANOSECONDS.toMillis(head.time - now - 1) + 1;
+                }
+                try {
+                    LOCK.wait(wait);
+                } catch (InterruptedException e) {
+                    // Only stops when idle.
+                }
+            }
+        }
+    }
+
+    /**
+     * A scheduled task.
+     */
+    private static final class Task implements Comparable<Task> {
+
+        final Runnable task;
+
+        /**
+         * The {@link System#nanoTime()} the task is due.
+         */
+        final long time;
+
+        private final long sequence;
+
+        Task(Runnable task, long time, long sequence) {
+            this.task = task;
+            this.time = time;
+            this.sequence = sequence;
+        }
+
+        public int compareTo(Task other) {
+            long diff = time - other.time;
+            if (diff == 0) {
+                diff = sequence - other.sequence;
+            }
+            return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+        }
+    }
+
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+/**
+ * Logger bound to a tag. Instances are obtained from {@link Log#forTag(String)},
+ * {@link Log#forClass(Class)} or {@link Log#forObject(Object)}.
+ * <p>
+ * The logger caches the level threshold of its tag together with the
+ * generation of the configuration it was computed from. As long as the
+ * configuration does not change, checking whether a message is loggable costs
+ * a single comparison. Loggers are thread safe and can be stored in static
+ * fields:
+ * </p>
+ * <pre>
+ * private static final Logger LOG = Log.forClass(MyActivity.class);
+ * ...
+ * if (LOG.isDebugEnabled()) {
+ *     LOG.d("state: " + state);
+ * }
+ * </pre>
+ * <p>
+ * Log methods returns the number of bytes written in the log, 0 if the message
+ * was not logged.
+ * </p>
+ */
+public final class Logger {
+
+    /**
+     * Number of bits used by the threshold in {@link #state}.
+     */
+    private static final int THRESHOLD_BITS = 4;
+
+    private static final int THRESHOLD_MASK = (1 << THRESHOLD_BITS) - 1;
+
+    /**
+     * Generation bits of a state that was never computed. Configuration
+     * generations start at 1 so they never match it.
+     */
+    private static final int UNRESOLVED = 0;
+
+    /**
+     * The name used to resolve the log level.
+     */
+    private final String name;
+
+    /**
+     * The tag.
+     */
+    private final String tag;
+
+    /**
+     * The cached decision: the configuration generation in the high bits and
+     * the lowest loggable level in the {@link #THRESHOLD_BITS} low bits. Both
+     * are packed in a single field so they are always read consistently.
+     */
+    private volatile int state = UNRESOLVED;
+
+    /**
+     * Creates a logger.
+     *
+     * @param name
+     *            the name used to resolve the log level, usually the tag or
+     *            the qualified class name the tag was computed from
+     * @param tag
+     *            the tag
+     */
+    Logger(String name, String tag) {
+        this.name = name;
+        this.tag = tag;
+    }
+
+    /**
+     * Gets the tag used by this logger.
+     *
+     * @return the tag
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Checks whether a message of the given level would be logged.
+     *
+     * @param level
+     *            the level
+     * @return <code>true</code> if the message would be logged
+     */
+    public boolean isLoggable(int level) {
+        return level >= getThreshold(Log.getConfiguration());
+    }
+
+    /**
+     * @return <code>true</code> if {@link Constants#VERBOSE} messages are logged
+     */
+    public boolean isVerboseEnabled() {
+        return isLoggable(Constants.VERBOSE);
+    }
+
+    /**
+     * @return <code>true</code> if {@link Constants#DEBUG} messages are logged
+     */
+    public boolean isDebugEnabled() {
+        return isLoggable(Constants.DEBUG);
+    }
+
+    /**
+     * @return <code>true</code> if {@link Constants#INFO} messages are logged
+     */
+    public boolean isInfoEnabled() {
+        return isLoggable(Constants.INFO);
+    }
+
+    /**
+     * @return <code>true</code> if {@link Constants#WARN} messages are logged
+     */
+    public boolean isWarnEnabled() {
+        return isLoggable(Constants.WARN);
+    }
+
+    /**
+     * @return <code>true</code> if {@link Constants#ERROR} messages are logged
+     */
+    public boolean isErrorEnabled() {
+        return isLoggable(Constants.ERROR);
+    }
+
+    /**
+     * Send a {@link Constants#VERBOSE} log message.
+     *
+     * @param msg
+     *            The message you would like logged.
+     */
+    public int v(String msg) {
+        return log(Constants.VERBOSE, msg, null);
+    }
+
+    /**
+     * Send a {@link Constants#VERBOSE} log message and log the exception.
+     *
+     * @param msg
+     *            The message you would like logged.
+     * @param tr
+     *            An exception to log
+     */
+    public int v(String msg, Throwable tr) {
+        return log(Constants.VERBOSE, msg, tr);
+    }
+
+    /**
+     * Send a {@link Constants#VERBOSE} log message built on demand. The
+     * message is built only if it is logged or collected for the reports.
+     *
+     * @param msg
+     *            The message you would like logged.
+     */
+    public int v(LazyMessage msg) {
+        LogConfiguration config = Log.getConfiguration();
+        return Log.dispatch(config, Constants.VERBOSE, name, tag, msg, null,
+                Constants.VERBOSE >= getThreshold(config));
+    }
+
+    /**
+     * Send a {@link Constants#DEBUG} log message.
+     *
+     * @param msg
+     *            The message you would like logged.
+     */
+    public int d(String msg) {
+        return log(Constants.DEBUG, msg, null);
+    }
+
+    /**
+     * Send a {@link Constants#DEBUG} log message and log the exception.
+     *
+     * @param msg
+     *            The message you would like logged.
+     * @param tr
+     *            An exception to log
+     */
+    public int d(String msg, Throwable tr) {
+        return log(Constants.DEBUG, msg, tr);
+    }
+
+    /**
+     * Send a {@link Constants#DEBUG} log message built on demand. The
+     * message is built only if it is logged or collected for the reports.
+     *
+     * @param msg
+     *            The message you would like logged.
+     */
+    public int d(LazyMessage msg) {
+        LogConfiguration config = Log.getConfiguration();
+        return Log.dispatch(config, Constants.DEBUG, name, tag, msg, null,
+                Constants.DEBUG >= getThreshold(config));
+    }
+
+    /**
+     * Send an {@link Constants#INFO} log message.
+     *
+     * @param msg
+     *            The message you would like logged.
+     */
+    public int i(String msg) {
+        return log(Constants.INFO, msg, null);
+    }
+
+    /**
+     * Send an {@link Constants#INFO} log message and log the exception.
+     *
+     * @param msg
+     *            The message you would like logged.
+     * @param tr
+     *            An exception to log
+     */
+    public int i(String msg, Throwable tr) {
+        return log(Constants.INFO, msg, tr);
+    }
+
+    /**
+     * Send an {@link Constants#INFO} log message built on demand. The
+     * message is built only if it is logged or collected for the reports.
+     *
+     * @param msg
+     *            The message you would like logged.
+     */
+    public int i(LazyMessage msg) {
+        LogConfiguration config = Log.getConfiguration();
+        return Log.dispatch(config, Constants.INFO, name, tag, msg, null,
+                Constants.INFO >= getThreshold(config));
+    }
+
+    /**
+     * Send a {@link Constants#WARN} log message.
+     *
+     * @param msg
+     *            The message you would like logged.
+     */
+    public int w(String msg) {
+        return log(Constants.WARN, msg, null);
+    }
+
+    /**
+     * Send a {@link Constants#WARN} log message and log the exception.
+     *
+     * @param msg
+     *            The message you would like logged.
+     * @param tr
+     *            An exception to log
+     */
+    public int w(String msg, Throwable tr) {
+        return log(Constants.WARN, msg, tr);
+    }
+
+    /**
+     * Send a {@link Constants#WARN} log message built on demand. The
+     * message is built only if it is logged or collected for the reports.
+     *
+     * @param msg
+     *            The message you would like logged.
+     */
+    public int w(LazyMessage msg) {
+        LogConfiguration config = Log.getConfiguration();
+        return Log.dispatch(config, Constants.WARN, name, tag, msg, null,
+                Constants.WARN >= getThreshold(config));
+    }
+
+    /**
+     * Send an {@link Constants#ERROR} log message.
+     *
+     * @param msg
+     *            The message you would like logged.
+     */
+    public int e(String msg) {
+        return log(Constants.ERROR, msg, null);
+    }
+
+    /**
+     * Send an {@link Constants#ERROR} log message and log the exception.
+     *
+     * @param msg
+     *            The message you would like logged.
+     * @param tr
+     *            An exception to log
+     */
+    public int e(String msg, Throwable tr) {
+        return log(Constants.ERROR, msg, tr);
+    }
+
+    /**
+     * Send an {@link Constants#ERROR} log message built on demand. The
+     * message is built only if it is logged or collected for the reports.
+     *
+     * @param msg
+     *            The message you would like logged.
+     */
+    public int e(LazyMessage msg) {
+        LogConfiguration config = Log.getConfiguration();
+        return Log.dispatch(config, Constants.ERROR, name, tag, msg, null,
+                Constants.ERROR >= getThreshold(config));
+    }
+
+    /**
+     * What a Terrible Failure: Report a condition that should never happen.
+     *
+     * @param msg
+     *            The message you would like logged.
+     * @see Log#wtf(String, String)
+     */
+    public int wtf(String msg) {
+        return log(Constants.ASSERT, msg, null);
+    }
+
+    /**
+     * What a Terrible Failure: Report a condition that should never happen.
+     *
+     * @param msg
+     *            The message you would like logged.
+     * @param tr
+     *            The exception to log
+     * @see Log#wtf(String, String, Throwable)
+     */
+    public int wtf(String msg, Throwable tr) {
+        return log(Constants.ASSERT, msg, tr);
+    }
+
+    private int log(int level, String msg, Throwable tr) {
+        LogConfiguration config = Log.getConfiguration();
+        return Log.dispatch(config, level, name, tag, msg, tr, level >= getThreshold(config));
+    }
+
+    /**
+     * Gets the lowest loggable level, computing it again if the configuration
+     * changed since the last call.
+     *
+     * @param config
+     *            the current configuration
+     * @return the threshold
+     */
+    private int getThreshold(LogConfiguration config) {
+        int s = state;
+        if ((s >>> THRESHOLD_BITS) == (config.generation & (-1 >>> THRESHOLD_BITS))) {
+            return s & THRESHOLD_MASK;
+        }
+        int threshold = config.getEffectiveLogLevel(name);
+        if (!config.activated && threshold < Constants.ASSERT) {
+            // Only assert messages are logged when the logging is disabled.
+            threshold = Constants.ASSERT;
+        }
+        // Levels are in [VERBOSE, ASSERT], clamp the configured values
+        // keeping the same decisions.
+        threshold = Math.max(0, Math.min(threshold, Constants.ASSERT + 1));
+        state = (config.generation << THRESHOLD_BITS) | threshold;
+        return threshold;
+    }
+
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+/**
+ * Substitutes arguments into message patterns. Each <code>{}</code> of the
+ * pattern is replaced by the next argument; placeholders without argument are
+ * kept as is and extra arguments are ignored. The primitive forms append their
+ * arguments without boxing, and the message is built in a {@link StringBuilder}
+ * reused by each thread.
+ * <p>
+ * The <code>toString()</code> of an argument may itself log a pattern
+ * message. Such a nested call gets its own builder, so it does not clear the
+ * message being built.
+ * </p>
+ */
+final class MessageFormatter {
+
+    /**
+     * The placeholder.
+     */
+    private static final String PLACEHOLDER = "{}";
+
+    /**
+     * Builders growing beyond this capacity are not reused, so a single long
+     * message does not stay in memory.
+     */
+    private static final int MAX_REUSED_CAPACITY = 1024;
+
+    private static final ThreadLocal<Buffer> buffers = new ThreadLocal<Buffer>() {
+        @Override
+        protected Buffer initialValue() {
+            return new Buffer();
+        }
+    };
+
+    private MessageFormatter() {
+        // Nothing to do.
+    }
+
+    static String format(String pattern, Object arg) {
+        Buffer buffer = buffers.get();
+        StringBuilder builder = buffer.begin();
+        try {
+            int index = appendNext(builder, pattern, 0);
+            if (index >= 0) {
+                builder.append(arg);
+            }
+            return end(builder, pattern, index);
+        } finally {
+            buffer.end(builder);
+        }
+    }
+
+    static String format(String pattern, int arg) {
+        Buffer buffer = buffers.get();
+        StringBuilder builder = buffer.begin();
+        try {
+            int index = appendNext(builder, pattern, 0);
+            if (index >= 0) {
+                builder.append(arg);
+            }
+            return end(builder, pattern, index);
+        } finally {
+            buffer.end(builder);
+        }
+    }
+
+    static String format(String pattern, long arg) {
+        Buffer buffer = buffers.get();
+        StringBuilder builder = buffer.begin();
+        try {
+            int index = appendNext(builder, pattern, 0);
+            if (index >= 0) {
+                builder.append(arg);
+            }
+            return end(builder, pattern, index);
+        } finally {
+            buffer.end(builder);
+        }
+    }
+
+    static String format(String pattern, double arg) {
+        Buffer buffer = buffers.get();
+        StringBuilder builder = buffer.begin();
+        try {
+            int index = appendNext(builder, pattern, 0);
+            if (index >= 0) {
+                builder.append(arg);
+            }
+            return end(builder, pattern, index);
+        } finally {
+            buffer.end(builder);
+        }
+    }
+
+    static String format(String pattern, boolean arg) {
+        Buffer buffer = buffers.get();
+        StringBuilder builder = buffer.begin();
+        try {
+            int index = appendNext(builder, pattern, 0);
+            if (index >= 0) {
+                builder.append(arg);
+            }
+            return end(builder, pattern, index);
+        } finally {
+            buffer.end(builder);
+        }
+    }
+
+    static String format(String pattern, char arg) {
+        Buffer buffer = buffers.get();
+        StringBuilder builder = buffer.begin();
+        try {
+            int index = appendNext(builder, pattern, 0);
+            if (index >= 0) {
+                builder.append(arg);
+            }
+            return end(builder, pattern, index);
+        } finally {
+            buffer.end(builder);
+        }
+    }
+
+    static String format(String pattern, Object arg1, Object arg2) {
+        Buffer buffer = buffers.get();
+        StringBuilder builder = buffer.begin();
+        try {
+            int index = appendNext(builder, pattern, 0);
+            if (index >= 0) {
+                builder.append(arg1);
+                index = appendNext(builder, pattern, index);
+                if (index >= 0) {
+                    builder.append(arg2);
+                }
+            }
+            return end(builder, pattern, index);
+        } finally {
+            buffer.end(builder);
+        }
+    }
+
+    static String format(String pattern, long arg1, long arg2) {
+        Buffer buffer = buffers.get();
+        StringBuilder builder = buffer.begin();
+        try {
+            int index = appendNext(builder, pattern, 0);
+            if (index >= 0) {
+                builder.append(arg1);
+                index = appendNext(builder, pattern, index);
+                if (index >= 0) {
+                    builder.append(arg2);
+                }
+            }
+            return end(builder, pattern, index);
+        } finally {
+            buffer.end(builder);
+        }
+    }
+
+    static String format(String pattern, double arg1, double arg2) {
+        Buffer buffer = buffers.get();
+        StringBuilder builder = buffer.begin();
+        try {
+            int index = appendNext(builder, pattern, 0);
+            if (index >= 0) {
+                builder.append(arg1);
+                index = appendNext(builder, pattern, index);
+                if (index >= 0) {
+                    builder.append(arg2);
+                }
+            }
+            return end(builder, pattern, index);
+        } finally {
+            buffer.end(builder);
+        }
+    }
+
+    static String format(String pattern, Object arg1, Object arg2, Object arg3) {
+        Buffer buffer = buffers.get();
+        StringBuilder builder = buffer.begin();
+        try {
+            int index = appendNext(builder, pattern, 0);
+            if (index >= 0) {
+                builder.append(arg1);
+                index = appendNext(builder, pattern, index);
+                if (index >= 0) {
+                    builder.append(arg2);
+                    index = appendNext(builder, pattern, index);
+                    if (index >= 0) {
+                        builder.append(arg3);
+                    }
+                }
+            }
+            return end(builder, pattern, index);
+        } finally {
+            buffer.end(builder);
+        }
+    }
+
+    /**
+     * Appends the pattern up to the next placeholder.
+     *
+     * @return the index following the placeholder, or -1 if there is no more
+     *         placeholder, in which case the rest of the pattern was appended.
+     */
+    private static int appendNext(StringBuilder builder, String pattern, int from) {
+        if (pattern == null) {
+            builder.append((String) null);
+            return -1;
+        }
+        int index = pattern.indexOf(PLACEHOLDER, from);
+        if (index < 0) {
+            builder.append(pattern, from, pattern.length());
+            return -1;
+        }
+        builder.append(pattern, from, index);
+        return index + PLACEHOLDER.length();
+    }
+
+    private static String end(StringBuilder builder, String pattern, int index) {
+        if (index >= 0) {
+            builder.append(pattern, index, pattern.length());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The builder reused by a thread.
+     */
+    private static final class Buffer {
+
+        private StringBuilder builder = new StringBuilder(128);
+
+        /**
+         * Whether the builder is building a message.
+         */
+        private boolean inUse;
+
+        /**
+         * Gets a builder for a message.
+         *
+         * @return the reused builder, or a new one if the reused builder is
+         *         building an enclosing message
+         */
+        StringBuilder begin() {
+            if (inUse) {
+                return new StringBuilder(128);
+            }
+            inUse = true;
+            builder.setLength(0);
+            return builder;
+        }
+
+        /**
+         * Releases a builder obtained from {@link #begin()}.
+         *
+         * @param used
+         *            the builder
+         */
+        void end(StringBuilder used) {
+            if (used != builder) {
+                return;
+            }
+            inUse = false;
+            if (builder.capacity() > MAX_REUSED_CAPACITY) {
+                builder = new StringBuilder(128);
+            }
+        }
+    }
+
+}
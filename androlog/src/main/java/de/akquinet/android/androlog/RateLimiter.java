@@ -0,0 +1,241 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of messages sent to the Android Log for a tag or a tag
+ * prefix. The limit is a token bucket holding up to <code>rate</code>
+ * messages and refilled continuously, so bursts up to the rate are accepted
+ * and the sustained throughput is bounded by the rate. The bucket is a
+ * single {@link AtomicLong} holding the theoretical arrival time of the next
+ * message (generic cell rate algorithm), updated without locking.
+ * <p>
+ * The messages refused by the limiter are counted. Their number is returned
+ * by {@link #pollSuppressed(long)} at most once per period, so the caller can
+ * log a summary with the next accepted message. If no message is accepted,
+ * the summary is logged by a task scheduled when a message is suppressed,
+ * see {@link #schedule()}.
+ * </p>
+ */
+final class RateLimiter {
+
+    /**
+     * The number of messages accepted per period.
+     */
+    private final int rate;
+
+    /**
+     * The period, in nanoseconds.
+     */
+    private final long period;
+
+    /**
+     * Nanoseconds between two messages at the sustained rate.
+     */
+    private final long interval;
+
+    /**
+     * How far ahead of the current time the theoretical arrival time may be,
+     * i.e. the burst capacity expressed in time.
+     */
+    private final long tolerance;
+
+    /**
+     * Theoretical arrival time of the next message, in nanoseconds.
+     */
+    private final AtomicLong arrival = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Number of messages refused since the last summary.
+     */
+    private final AtomicInteger suppressed = new AtomicInteger();
+
+    /**
+     * Time of the last summary, in nanoseconds.
+     */
+    private final AtomicLong lastSummary;
+
+    /**
+     * Whether a summary of the suppressed messages is scheduled.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * Creates a limiter.
+     *
+     * @param rate
+     *            the number of messages per period, must be positive
+     * @param period
+     *            the period in nanoseconds, must be positive
+     * @param now
+     *            the current time in nanoseconds
+     */
+    RateLimiter(int rate, long period, long now) {
+        this.rate = rate;
+        this.period = period;
+        this.interval = Math.max(1, period / rate);
+        this.tolerance = interval * (rate - 1);
+        this.lastSummary = new AtomicLong(now);
+    }
+
+    /**
+     * Parses a rate limit specification: a number of messages, optionally
+     * followed by <code>/s</code>, <code>/m</code> or <code>/h</code>
+     * (per second if omitted). For example: <code>50/s</code>.
+     *
+     * @param spec
+     *            the specification
+     * @return the limiter, or <code>null</code> if the specification is not
+     *         valid
+     */
+    static RateLimiter parse(String spec) {
+        if (spec == null) {
+            return null;
+        }
+        String value = spec.trim();
+        long seconds = 1;
+        int slash = value.indexOf('/');
+        if (slash >= 0) {
+            String p = value.substring(slash + 1).trim();
+            value = value.substring(0, slash).trim();
+            if ("s".equalsIgnoreCase(p)) {
+                seconds = 1;
+            } else if ("m".equalsIgnoreCase(p)) {
+                seconds = 60;
+            } else if ("h".equalsIgnoreCase(p)) {
+                seconds = 3600;
+            } else {
+                return null;
+            }
+        }
+        try {
+            int rate = Integer.parseInt(value);
+            if (rate <= 0) {
+                return null;
+            }
+            return new RateLimiter(rate, TimeUnit.SECONDS.toNanos(seconds), System.nanoTime());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Tries to take a token from the bucket.
+     *
+     * @param now
+     *            the current time in nanoseconds
+     * @return <code>true</code> if the message can be logged,
+     *         <code>false</code> if it must be suppressed.
+     */
+    boolean tryAcquire(long now) {
+        while (true) {
+            long tat = arrival.get();
+            // Long.MIN_VALUE is the initial value, the bucket is full.
+            long next = (tat == Long.MIN_VALUE || tat - now < 0 ? now : tat) + interval;
+            if (next - now > tolerance + interval) {
+                suppressed.incrementAndGet();
+                return false;
+            }
+            if (arrival.compareAndSet(tat, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of suppressed messages if a summary is due. A summary
+     * is due if messages were suppressed and no summary was produced during
+     * the last period. The counter is reset when returned.
+     *
+     * @param now
+     *            the current time in nanoseconds
+     * @return the number of messages suppressed since the last summary, or 0
+     *         if no summary is due.
+     */
+    int pollSuppressed(long now) {
+        if (suppressed.get() == 0) {
+            return 0;
+        }
+        long last = lastSummary.get();
+        if (now - last < period || !lastSummary.compareAndSet(last, now)) {
+            return 0;
+        }
+        return suppressed.getAndSet(0);
+    }
+
+    /**
+     * Marks the summary of the suppressed messages as scheduled.
+     *
+     * @return <code>true</code> if the summary has to be scheduled,
+     *         <code>false</code> if it already is
+     */
+    boolean schedule() {
+        return scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Gets the number of suppressed messages from the scheduled summary, see
+     * {@link #pollSuppressed(long)}. The next suppressed message schedules a
+     * summary again.
+     *
+     * @param now
+     *            the current time in nanoseconds
+     * @return the number of messages suppressed since the last summary, or 0
+     *         if no summary is due.
+     */
+    int pollScheduled(long now) {
+        scheduled.set(false);
+        return pollSuppressed(now);
+    }
+
+    /**
+     * Gets the delay before the next summary is due.
+     *
+     * @param now
+     *            the current time in nanoseconds
+     * @return the delay in nanoseconds
+     */
+    long getSummaryDelay(long now) {
+        return Math.max(0, lastSummary.get() + period - now);
+    }
+
+    /**
+     * @return <code>true</code> if messages were suppressed since the last
+     *         summary
+     */
+    boolean hasSuppressed() {
+        return suppressed.get() > 0;
+    }
+
+    /**
+     * @return the number of messages accepted per period
+     */
+    int getRate() {
+        return rate;
+    }
+
+    /**
+     * @return the period in nanoseconds
+     */
+    long getPeriod() {
+        return period;
+    }
+
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Detects the runs of identical messages logged by a thread. A message
+ * repeats the previous one if it has the same level, tag and message and no
+ * error; the comparison is done on the given strings, nothing is formatted.
+ * Each thread has its own run, so the repeated messages of a thread are not
+ * interrupted by the other threads.
+ * <p>
+ * {@link Log} drops the repetitions and logs a single summary line when the
+ * run ends, i.e. when the thread logs a different message, or when the run
+ * lasts longer than the timeout. The summary is usually logged by the next
+ * log call of the thread; the runs of the threads which stopped logging are
+ * summarized by the {@link LogTimer}, and all the runs are summarized before
+ * a report is built and when the configuration changes.
+ * </p>
+ * <p>
+ * A run is only touched by its thread, except when summarized by another
+ * thread, so its monitor is not contended.
+ * </p>
+ */
+final class RepeatCollapser {
+
+    /**
+     * Default maximum duration of a run before its summary is logged, in
+     * milliseconds.
+     */
+    static final long DEFAULT_TIMEOUT = 5000;
+
+    /**
+     * Maximum duration of a run before its summary is logged, in nanoseconds.
+     */
+    private final long timeout;
+
+    /**
+     * The runs of all the threads, so they can be summarized by any thread.
+     * The runs of the dead threads go away with them.
+     */
+    private final Map<Thread, Run> all = Collections.synchronizedMap(new WeakHashMap<Thread, Run>());
+
+    private final ThreadLocal<Run> runs = new ThreadLocal<Run>() {
+        @Override
+        protected Run initialValue() {
+            Run run = new Run();
+            all.put(Thread.currentThread(), run);
+            return run;
+        }
+    };
+
+    /**
+     * Whether a summary of the pending runs is scheduled.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * Creates a collapser.
+     *
+     * @param timeout
+     *            the maximum duration of a run before its summary is logged,
+     *            in milliseconds
+     */
+    RepeatCollapser(long timeout) {
+        this.timeout = TimeUnit.MILLISECONDS.toNanos(timeout);
+    }
+
+    /**
+     * Gets the run of the current thread.
+     *
+     * @return the run
+     */
+    Run getRun() {
+        return runs.get();
+    }
+
+    /**
+     * Checks whether a run lasted long enough to log its summary.
+     *
+     * @param run
+     *            the run
+     * @param now
+     *            the current time in nanoseconds
+     * @return <code>true</code> if the summary has to be logged
+     */
+    boolean isExpired(Run run, long now) {
+        return now - run.start >= timeout;
+    }
+
+    /**
+     * Gets the maximum duration of a run before its summary is logged.
+     *
+     * @return the timeout in milliseconds
+     */
+    long getTimeout() {
+        return TimeUnit.NANOSECONDS.toMillis(timeout);
+    }
+
+    /**
+     * Marks the summary of the pending runs as scheduled.
+     *
+     * @return <code>true</code> if the summary has to be scheduled,
+     *         <code>false</code> if it already is
+     */
+    boolean schedule() {
+        return scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Takes the summaries of the runs of all the threads with repetitions not
+     * logged yet.
+     *
+     * @param now
+     *            the current time in nanoseconds
+     * @param expiredOnly
+     *            <code>true</code> to only take the runs lasting longer than
+     *            the timeout
+     * @return the summaries, to be logged
+     */
+    List<Summary> drain(long now, boolean expiredOnly) {
+        if (expiredOnly) {
+            // Cleared first, so a repetition counted meanwhile schedules again.
+            scheduled.set(false);
+        }
+        Run[] snapshot;
+        synchronized (all) {
+            snapshot = all.values().toArray(new Run[all.size()]);
+        }
+        List<Summary> summaries = new ArrayList<Summary>();
+        for (Run run : snapshot) {
+            synchronized (run) {
+                if (run.count > 0 && (!expiredOnly || isExpired(run, now))) {
+                    summaries.add(run.takeSummary(now));
+                }
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Checks whether a run has repetitions not logged yet.
+     *
+     * @return <code>true</code> if a summary is pending
+     */
+    boolean hasPending() {
+        Run[] snapshot;
+        synchronized (all) {
+            snapshot = all.values().toArray(new Run[all.size()]);
+        }
+        for (Run run : snapshot) {
+            synchronized (run) {
+                if (run.count > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The last message logged by a thread and the number of times it was
+     * repeated. Accessed while holding its monitor.
+     */
+    static final class Run {
+
+        int level;
+
+        String name;
+
+        String tag;
+
+        String message;
+
+        boolean loggable;
+
+        /**
+         * Number of repetitions not logged yet.
+         */
+        int count;
+
+        /**
+         * Start of the run, or time of the last summary, in nanoseconds.
+         */
+        long start;
+
+        /**
+         * Checks whether a message repeats the message of the run.
+         *
+         * @param level
+         *            the log level
+         * @param tag
+         *            the tag
+         * @param msg
+         *            the message
+         * @return <code>true</code> if the message is a repetition
+         */
+        boolean matches(int level, String tag, String msg) {
+            return message != null && this.level == level && message.equals(msg)
+                    && (this.tag == null ? tag == null : this.tag.equals(tag));
+        }
+
+        /**
+         * Starts a new run.
+         */
+        void begin(int level, String name, String tag, String msg, boolean loggable, long now) {
+            this.level = level;
+            this.name = name;
+            this.tag = tag;
+            this.message = msg;
+            this.loggable = loggable;
+            this.count = 0;
+            this.start = now;
+        }
+
+        /**
+         * Takes the summary of the repetitions not logged yet.
+         *
+         * @param now
+         *            the current time in nanoseconds, starting the next
+         *            period of the run
+         * @return the summary
+         */
+        Summary takeSummary(long now) {
+            Summary summary = new Summary(level, name, tag, count, loggable);
+            count = 0;
+            start = now;
+            return summary;
+        }
+
+        /**
+         * Ends the run, so the next message does not match.
+         */
+        void clear() {
+            name = null;
+            tag = null;
+            message = null;
+            count = 0;
+        }
+    }
+
+    /**
+     * The number of repetitions of a message, to be logged.
+     */
+    static final class Summary {
+
+        final int level;
+
+        final String name;
+
+        final String tag;
+
+        final int count;
+
+        final boolean loggable;
+
+        Summary(int level, String name, String tag, int count, boolean loggable) {
+            this.level = level;
+            this.name = name;
+            this.tag = tag;
+            this.count = count;
+            this.loggable = loggable;
+        }
+
+        /**
+         * Gets the summary line.
+         *
+         * @return the message
+         */
+        String getMessage() {
+            return "Last message repeated " + count + " times";
+        }
+    }
+
+}
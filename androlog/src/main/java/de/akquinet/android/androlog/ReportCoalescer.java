@@ -0,0 +1,192 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import de.akquinet.android.androlog.reporter.Report;
+
+/**
+ * Groups the report triggers happening within a time window, so a burst of
+ * errors produces a single report. The first trigger opens a batch; the
+ * triggers until the end of the window join it. The batch is sent once the
+ * window is over, with the message and error of its first trigger and the
+ * list of all its triggers. Nothing waits for the end of the window: the
+ * caller schedules the batch, see {@link #getDelay(Batch)}.
+ */
+final class ReportCoalescer {
+
+    /**
+     * Maximum number of triggers listed in a batch, the following ones are
+     * only counted.
+     */
+    static final int MAX_TRIGGERS = 20;
+
+    /**
+     * The window, in nanoseconds.
+     */
+    private final long window;
+
+    /**
+     * The batch accepting triggers, guarded by this.
+     */
+    private Batch current;
+
+    /**
+     * Creates a coalescer.
+     *
+     * @param window
+     *            the window, in milliseconds
+     */
+    ReportCoalescer(long window) {
+        this.window = TimeUnit.MILLISECONDS.toNanos(window);
+    }
+
+    /**
+     * Adds a trigger.
+     *
+     * @param message
+     *            the message of the trigger
+     * @param error
+     *            the error of the trigger, can be <code>null</code>
+     * @return the new batch if the trigger opened one, the caller then has to
+     *         send it, <code>null</code> if the trigger joined the open batch
+     */
+    synchronized Batch add(String message, Throwable error) {
+        long now = System.nanoTime();
+        if (current != null && now - current.deadline < 0) {
+            current.add(message, error);
+            return null;
+        }
+        current = new Batch(now + window);
+        current.add(message, error);
+        return current;
+    }
+
+    /**
+     * Gets the time left before the end of the window of a batch.
+     *
+     * @param batch
+     *            the batch
+     * @return the delay in milliseconds, rounded up
+     */
+    long getDelay(Batch batch) {
+        long remaining = batch.deadline - System.nanoTime();
+        return remaining <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(remaining) + 1;
+    }
+
+    /**
+     * Closes a batch, at the end of its window or if it cannot be sent. Once
+     * closed, the batch does not change anymore and can be read; the next
+     * trigger opens a new batch.
+     *
+     * @param batch
+     *            the batch
+     */
+    synchronized void close(Batch batch) {
+        // The lock makes the added triggers visible.
+        if (current == batch) {
+            current = null;
+        }
+    }
+
+    /**
+     * The triggers of a window.
+     */
+    static final class Batch {
+
+        private final long deadline;
+
+        /**
+         * The first {@link ReportCoalescer#MAX_TRIGGERS} triggers.
+         */
+        final List<Trigger> triggers = new ArrayList<Trigger>();
+
+        /**
+         * The number of triggers, listed or not.
+         */
+        int count;
+
+        private Batch(long deadline) {
+            this.deadline = deadline;
+        }
+
+        private void add(String message, Throwable error) {
+            count++;
+            if (triggers.size() < MAX_TRIGGERS) {
+                triggers.add(new Trigger(message, error));
+            }
+        }
+
+        /**
+         * @return the error of the batch: the first error of its triggers
+         */
+        Throwable getError() {
+            for (Trigger trigger : triggers) {
+                if (trigger.error != null) {
+                    return trigger.error;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Gets the message of the batch, listing its triggers for the
+         * reporters receiving a message rather than a {@link Report}.
+         *
+         * @return the message of the first trigger, followed by the list of
+         *         triggers if there are several
+         */
+        String getSummary() {
+            String first = triggers.get(0).message;
+            if (count == 1) {
+                return first;
+            }
+            StringBuilder summary = new StringBuilder();
+            if (first != null) {
+                summary.append(first).append('\n');
+            }
+            summary.append(count).append(" report triggers:");
+            for (Trigger trigger : triggers) {
+                summary.append("\n - ").append(trigger.message);
+                if (trigger.error != null) {
+                    summary.append(" (").append(trigger.error).append(')');
+                }
+            }
+            if (count > triggers.size()) {
+                summary.append("\n - ...");
+            }
+            return summary.toString();
+        }
+    }
+
+    /**
+     * A report trigger.
+     */
+    static final class Trigger {
+
+        final String message;
+
+        final Throwable error;
+
+        private Trigger(String message, Throwable error) {
+            this.message = message;
+            this.error = error;
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the reports triggered by the log calls from a single low priority
+ * thread. The pending reports wait in a bounded queue; when it is full, the
+ * newest report is dropped, or the oldest pending one if configured so. The
+ * triggers of the dropped reports are counted, a coalesced report counting
+ * all its triggers. The thread stops when idle, and is started
+ * again by the next report.
+ */
+final class ReportDispatcher {
+
+    /**
+     * Default number of pending reports.
+     */
+    static final int DEFAULT_CAPACITY = 4;
+
+    /**
+     * Time an idle thread waits for a report before stopping, in seconds.
+     */
+    private static final long KEEP_ALIVE = 30;
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Creates a dispatcher.
+     *
+     * @param capacity
+     *            the number of pending reports, at least 1
+     * @param dropOldest
+     *            <code>true</code> to drop the oldest pending report when the
+     *            queue is full, <code>false</code> to drop the new one
+     */
+    ReportDispatcher(int capacity, final boolean dropOldest) {
+        executor = new ThreadPoolExecutor(0, 1, KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(Math.max(1, capacity)), new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "androlog-report");
+                        thread.setDaemon(true);
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        return thread;
+                    }
+                }, new RejectedExecutionHandler() {
+                    public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+                        if (dropOldest && !e.isShutdown()) {
+                            Runnable oldest = e.getQueue().poll();
+                            if (oldest != null) {
+                                dropped.addAndGet(((Pending) oldest).triggers);
+                            }
+                            e.execute(r);
+                        } else {
+                            dropped.addAndGet(((Pending) r).triggers);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Queues a report.
+     *
+     * @param report
+     *            the task sending the report
+     */
+    void dispatch(Runnable report) {
+        dispatch(report, 1);
+    }
+
+    /**
+     * Queues a report with several triggers.
+     *
+     * @param report
+     *            the task sending the report
+     * @param triggers
+     *            the number of triggers of the report, counted if dropped
+     */
+    void dispatch(Runnable report, int triggers) {
+        executor.execute(new Pending(report, triggers));
+    }
+
+    /**
+     * @return the number of report triggers dropped since the dispatcher was
+     *         created
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops accepting reports. The pending reports are still sent.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * A queued report and its number of triggers.
+     */
+    private static final class Pending implements Runnable {
+
+        private final Runnable report;
+
+        final int triggers;
+
+        Pending(Runnable report, int triggers) {
+            this.report = report;
+            this.triggers = triggers;
+        }
+
+        public void run() {
+            report.run();
+        }
+    }
+
+}
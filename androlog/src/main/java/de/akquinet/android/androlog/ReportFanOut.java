@@ -0,0 +1,287 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import android.content.Context;
+import de.akquinet.android.androlog.ReportResult.Delivery;
+import de.akquinet.android.androlog.ReportResult.Outcome;
+import de.akquinet.android.androlog.reporter.EnhancedReporter;
+import de.akquinet.android.androlog.reporter.Report;
+import de.akquinet.android.androlog.reporter.Reporter;
+
+/**
+ * Sends a report with several reporters concurrently, each reporter running
+ * in its own thread with its own timeout. A failing or slow reporter does
+ * not prevent nor delay the others: the report takes as long as its slowest
+ * reporter. A reporter still running at its timeout is interrupted.
+ * <p>
+ * A reporter ignoring the interruption keeps its thread. It is not called
+ * again until it completes, its next reports being {@link Outcome#SKIPPED},
+ * so a stuck reporter holds a single thread. A reporter still within its
+ * timeout is not stuck: overlapping reports, such as a crash report sent
+ * while a triggered report is running, all call it. The number of threads is
+ * bounded by {@link #MAX_THREADS}; when they are all taken, the reporters run
+ * in the calling thread.
+ * </p>
+ */
+final class ReportFanOut {
+
+    /**
+     * Time an idle thread waits for a report before stopping, in seconds.
+     */
+    private static final long KEEP_ALIVE = 30;
+
+    /**
+     * Maximum number of reporters running concurrently, stuck or not.
+     */
+    static final int MAX_THREADS = 8;
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(0,
+            MAX_THREADS, KEEP_ALIVE, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+            new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "androlog-reporter");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * The reporters still sending a report past their timeout.
+     */
+    private static final ConcurrentHashMap<Reporter, Boolean> STUCK = new ConcurrentHashMap<Reporter, Boolean>();
+
+    private ReportFanOut() {
+        // Static methods only.
+    }
+
+    /**
+     * Sends a report with the given reporters and waits for their results.
+     *
+     * @param reporters
+     *            the reporters
+     * @param timeouts
+     *            the timeout of each reporter in milliseconds, 0 or less to
+     *            wait until it completes
+     * @param context
+     *            the Android context
+     * @param report
+     *            the report sent to the {@link EnhancedReporter}s,
+     *            <code>null</code> to send the message and error instead
+     * @param entries
+     *            the log entries of the report, <code>null</code> to read
+     *            them from the store when the reporters build their report
+     * @param message
+     *            the message
+     * @param error
+     *            the error
+     * @return the result of each reporter
+     */
+    static ReportResult send(List<Reporter> reporters, long[] timeouts, Context context,
+            Report report, List<String> entries, String message, Throwable error) {
+        long start = System.nanoTime();
+        int n = reporters.size();
+        List<Send> sends = new ArrayList<Send>(n);
+        List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(n);
+        for (int i = 0; i < n; i++) {
+            Send send = new Send(reporters.get(i), context, report, entries, message, error);
+            sends.add(send);
+            if (STUCK.containsKey(send.reporter)) {
+                // Still sending a previous report, past its timeout.
+                send.skipped = true;
+                futures.add(null);
+            } else if (n == 1 && timeouts[i] <= 0) {
+                // Nothing to wait for concurrently.
+                futures.add(null);
+            } else {
+                try {
+                    futures.add(EXECUTOR.submit(send));
+                } catch (RejectedExecutionException e) {
+                    // All the threads are taken, runs it in this thread.
+                    futures.add(null);
+                }
+            }
+        }
+
+        List<Delivery> deliveries = new ArrayList<Delivery>(n);
+        boolean interrupted = false;
+        for (int i = 0; i < n; i++) {
+            Send send = sends.get(i);
+            Future<Boolean> future = futures.get(i);
+            if (send.skipped) {
+                deliveries.add(new Delivery(send.reporter, Outcome.SKIPPED, 0, null));
+                continue;
+            }
+            Outcome outcome;
+            Throwable failure = null;
+            try {
+                boolean sent;
+                if (future == null) {
+                    sent = send.call();
+                } else if (interrupted) {
+                    throw new InterruptedException();
+                } else if (timeouts[i] > 0) {
+                    long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeouts[i]);
+                    sent = future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } else {
+                    sent = future.get();
+                }
+                outcome = sent ? Outcome.SENT : Outcome.FAILED;
+            } catch (ExecutionException e) {
+                outcome = Outcome.ERROR;
+                failure = e.getCause();
+            } catch (TimeoutException e) {
+                send.abandon(future);
+                outcome = Outcome.TIMED_OUT;
+            } catch (InterruptedException e) {
+                if (future != null) {
+                    // Not past its timeout, so not stuck.
+                    future.cancel(true);
+                }
+                interrupted = true;
+                outcome = Outcome.TIMED_OUT;
+            } catch (Exception e) {
+                // Thrown by a reporter run in this thread.
+                outcome = Outcome.ERROR;
+                failure = e;
+            }
+            long end = outcome == Outcome.TIMED_OUT ? System.nanoTime() : send.end;
+            deliveries.add(new Delivery(send.reporter, outcome,
+                    TimeUnit.NANOSECONDS.toMillis(end - start), failure));
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return new ReportResult(deliveries, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Sends the report with a reporter.
+     */
+    private static final class Send implements Callable<Boolean> {
+
+        private static final int NEW = 0;
+
+        private static final int RUNNING = 1;
+
+        private static final int ABANDONED = 2;
+
+        private static final int DONE = 3;
+
+        final Reporter reporter;
+
+        private final Context context;
+
+        private final Report report;
+
+        private final List<String> entries;
+
+        private final String message;
+
+        private final Throwable error;
+
+        /**
+         * The time the reporter completed, set before the result is
+         * available.
+         */
+        volatile long end;
+
+        /**
+         * Whether the reporter is skipped, as it is busy.
+         */
+        boolean skipped;
+
+        /**
+         * {@link #NEW}, {@link #RUNNING}, {@link #ABANDONED} or
+         * {@link #DONE}, guarded by this.
+         */
+        private int state = NEW;
+
+        /**
+         * Whether this send marked its reporter as stuck, guarded by this.
+         */
+        private boolean stuck;
+
+        Send(Reporter reporter, Context context, Report report, List<String> entries,
+                String message, Throwable error) {
+            this.reporter = reporter;
+            this.context = context;
+            this.report = report;
+            this.entries = entries;
+            this.message = message;
+            this.error = error;
+        }
+
+        public Boolean call() {
+            synchronized (this) {
+                if (state != NEW) {
+                    // Timed out before starting.
+                    return false;
+                }
+                state = RUNNING;
+            }
+            Log.setReportedSnapshot(entries);
+            try {
+                if (report != null && reporter instanceof EnhancedReporter) {
+                    return ((EnhancedReporter) reporter).send(context, report);
+                }
+                return reporter.send(context, message, error);
+            } finally {
+                Log.setReportedSnapshot(null);
+                end = System.nanoTime();
+                synchronized (this) {
+                    state = DONE;
+                    if (stuck) {
+                        STUCK.remove(reporter);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gives up waiting for the reporter, past its timeout. The reporter
+         * is interrupted; if it is running, it is marked as stuck until it
+         * completes.
+         *
+         * @param future
+         *            the future of the send
+         */
+        void abandon(Future<Boolean> future) {
+            future.cancel(true);
+            synchronized (this) {
+                if (state == RUNNING) {
+                    stuck = STUCK.putIfAbsent(reporter, Boolean.TRUE) == null;
+                }
+                if (state != DONE) {
+                    state = ABANDONED;
+                }
+            }
+        }
+    }
+
+}
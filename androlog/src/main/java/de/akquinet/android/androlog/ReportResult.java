@@ -0,0 +1,150 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.Collections;
+import java.util.List;
+
+import de.akquinet.android.androlog.reporter.Reporter;
+
+/**
+ * The outcome of a report: the result of each reporter and the time taken
+ * to send the report. The reporters send the report concurrently, so the
+ * latency of the report is the latency of the slowest reporter.
+ */
+public final class ReportResult {
+
+    /**
+     * The outcome of a reporter.
+     */
+    public enum Outcome {
+        /**
+         * The reporter sent the report.
+         */
+        SENT,
+        /**
+         * The reporter failed to send the report.
+         */
+        FAILED,
+        /**
+         * The reporter threw an exception.
+         */
+        ERROR,
+        /**
+         * The reporter did not complete before its timeout, or the report
+         * was interrupted.
+         */
+        TIMED_OUT,
+        /**
+         * The reporter was not called: it was still sending a previous
+         * report past its timeout.
+         */
+        SKIPPED
+    }
+
+    /**
+     * The result of a reporter.
+     */
+    public static final class Delivery {
+
+        private final Reporter reporter;
+
+        private final Outcome outcome;
+
+        private final long latency;
+
+        private final Throwable error;
+
+        Delivery(Reporter reporter, Outcome outcome, long latency, Throwable error) {
+            this.reporter = reporter;
+            this.outcome = outcome;
+            this.latency = latency;
+            this.error = error;
+        }
+
+        public Reporter getReporter() {
+            return reporter;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * @return the time taken by the reporter, or until its timeout, in
+         *         milliseconds
+         */
+        public long getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return the exception thrown by the reporter, <code>null</code>
+         *         unless the outcome is {@link Outcome#ERROR}
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return reporter.getClass().getName() + ": " + outcome + " in " + latency + " ms";
+        }
+    }
+
+    private final List<Delivery> deliveries;
+
+    private final long latency;
+
+    ReportResult(List<Delivery> deliveries, long latency) {
+        this.deliveries = Collections.unmodifiableList(deliveries);
+        this.latency = latency;
+    }
+
+    /**
+     * @return the results of the reporters, in the order of the configured
+     *         reporters
+     */
+    public List<Delivery> getDeliveries() {
+        return deliveries;
+    }
+
+    /**
+     * @return <code>true</code> if the report was successfully sent by
+     *         <b>all</b> reporters, <code>false</code> otherwise.
+     */
+    public boolean isSuccessful() {
+        for (Delivery delivery : deliveries) {
+            if (delivery.outcome != Outcome.SENT) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the time taken to send the report, in milliseconds
+     */
+    public long getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        return "Report " + (isSuccessful() ? "sent" : "failed") + " in " + latency + " ms "
+                + deliveries;
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.Map;
+
+/**
+ * Immutable index associating values to tags and tag prefixes. Tags are
+ * split in segments on '.', so a value set for <code>a.b</code> applies to
+ * <code>a.b</code>, <code>a.b.c</code> and <code>a.b.c.d</code> but not to
+ * <code>a.bc</code>.
+ * <p>
+ * The lookup walks the characters of the tag once, hashing each segment on
+ * the fly, and does not allocate.
+ * </p>
+ *
+ * @param <V> the type of the values
+ */
+final class TagTrie<V> {
+
+    /**
+     * The root node, matching the empty prefix.
+     */
+    private final Node<V> root = new Node<V>(null, 0);
+
+    /**
+     * Builds the index.
+     *
+     * @param entries
+     *            the tag (or tag prefix) to value map
+     */
+    TagTrie(Map<String, V> entries) {
+        for (Map.Entry<String, V> entry : entries.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Gets the value of the longest configured prefix of the given tag. If
+     * called with "a.b.c.d", it looks for a.b.c.d, a.b.c, a.b and a.
+     *
+     * @param tag
+     *            the tag
+     * @return the value or <code>null</code> if neither the tag nor one of
+     *         its parents is configured.
+     */
+    V get(String tag) {
+        if (tag == null) {
+            return null;
+        }
+        V result = null;
+        Node<V> node = root;
+        int length = tag.length();
+        int start = 0;
+        while (true) {
+            int hash = 0;
+            int end = start;
+            while (end < length) {
+                char c = tag.charAt(end);
+                if (c == '.') {
+                    break;
+                }
+                hash = 31 * hash + c;
+                end++;
+            }
+            node = node.child(tag, start, end - start, hash);
+            if (node == null) {
+                return result;
+            }
+            if (node.value != null) {
+                result = node.value;
+            }
+            if (end == length) {
+                return result;
+            }
+            start = end + 1;
+        }
+    }
+
+    private void put(String tag, V value) {
+        Node<V> node = root;
+        int start = 0;
+        while (true) {
+            int end = tag.indexOf('.', start);
+            if (end == -1) {
+                end = tag.length();
+            }
+            String segment = tag.substring(start, end);
+            node = node.getOrCreateChild(segment);
+            if (end == tag.length()) {
+                node.value = value;
+                return;
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * A tag segment. Children are stored in an open addressing table using
+     * the {@link String#hashCode()} of their segment.
+     */
+    private static final class Node<V> {
+
+        private final String segment;
+
+        private final int hash;
+
+        private V value;
+
+        private Node<V>[] children;
+
+        private int size;
+
+        Node(String segment, int hash) {
+            this.segment = segment;
+            this.hash = hash;
+        }
+
+        Node<V> child(String tag, int offset, int length, int h) {
+            Node<V>[] table = children;
+            if (table == null) {
+                return null;
+            }
+            int mask = table.length - 1;
+            for (int i = spread(h) & mask; table[i] != null; i = (i + 1) & mask) {
+                Node<V> candidate = table[i];
+                if (candidate.hash == h
+                        && candidate.segment.length() == length
+                        && tag.regionMatches(offset, candidate.segment, 0, length)) {
+                    return candidate;
+                }
+            }
+            return null;
+        }
+
+        Node<V> getOrCreateChild(String s) {
+            Node<V> existing = child(s, 0, s.length(), s.hashCode());
+            if (existing != null) {
+                return existing;
+            }
+            if (children == null || (size + 1) * 2 > children.length) {
+                resize();
+            }
+            Node<V> node = new Node<V>(s, s.hashCode());
+            insert(children, node);
+            size++;
+            return node;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private void resize() {
+            Node<V>[] old = children;
+            children = new Node[old == null ? 4 : old.length * 2];
+            if (old != null) {
+                for (Node<V> node : old) {
+                    if (node != null) {
+                        insert(children, node);
+                    }
+                }
+            }
+        }
+
+        private static <V> void insert(Node<V>[] table, Node<V> node) {
+            int mask = table.length - 1;
+            int i = spread(node.hash) & mask;
+            while (table[i] != null) {
+                i = (i + 1) & mask;
+            }
+            table[i] = node;
+        }
+
+        private static int spread(int h) {
+            return h ^ (h >>> 16);
+        }
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Entry store giving each logging thread its own {@link LogEntryBuffer}, so
+ * collecting an entry only writes memory owned by the logging thread. The
+ * buffers record the {@link System#nanoTime()} of their entries, which is
+ * monotonic across threads; {@link #getEntries()} merges the buffers on that
+ * key and keeps the most recent entries up to the global capacity.
+ * <p>
+ * The buffer of a thread outlives the thread, so the entries logged by a
+ * thread that died, typically because of the crash being reported, are still
+ * reported. The buffers of dead threads are dropped once none of their
+ * entries is recent enough to be reported, and when more than
+ * {@link #MAX_DEAD_BUFFERS} dead threads are retained.
+ * </p>
+ */
+final class ThreadEntryStore implements EntryStore {
+
+    /**
+     * Maximum number of buffers of dead threads kept when a new thread
+     * starts logging.
+     */
+    static final int MAX_DEAD_BUFFERS = 8;
+
+    /**
+     * The maximum number of entries per thread.
+     */
+    private final int threadCapacity;
+
+    /**
+     * The maximum number of entries returned by {@link #getEntries()}.
+     */
+    private final int capacity;
+
+    /**
+     * All the buffers, in the order of their creation.
+     */
+    private final Queue<ThreadBuffer> buffers = new ConcurrentLinkedQueue<ThreadBuffer>();
+
+    /**
+     * The buffer of each thread, weakly referenced: a thread keeps the entry
+     * of a replaced store in its thread local map until the entry is
+     * expunged, and must not retain the buffer meanwhile. The buffers are
+     * held by {@link #buffers}.
+     */
+    private final ThreadLocal<WeakReference<ThreadBuffer>> threadBuffers = new ThreadLocal<WeakReference<ThreadBuffer>>();
+
+    /**
+     * Creates the store.
+     *
+     * @param threadCapacity
+     *            the maximum number of entries per thread, must be positive
+     * @param capacity
+     *            the maximum number of entries returned, 0 or less for no
+     *            limit
+     */
+    ThreadEntryStore(int threadCapacity, int capacity) {
+        this.threadCapacity = threadCapacity;
+        this.capacity = capacity;
+    }
+
+    public void add(int level, long time, String tag, String message, Throwable error) {
+        WeakReference<ThreadBuffer> ref = threadBuffers.get();
+        ThreadBuffer buffer = ref == null ? null : ref.get();
+        if (buffer == null) {
+            buffer = new ThreadBuffer(Thread.currentThread(), new LogEntryBuffer(threadCapacity,
+                    true));
+            purgeDeadBuffers();
+            buffers.add(buffer);
+            threadBuffers.set(new WeakReference<ThreadBuffer>(buffer));
+        }
+        buffer.entries.add(level, time, tag, message, error);
+    }
+
+    /**
+     * Merges the buffers of the threads, oldest first.
+     *
+     * @return the most recent entries, up to the global capacity
+     */
+    public List<String> getEntries() {
+        EntryList entries = new EntryList();
+        accept(entries);
+        return entries;
+    }
+
+    /**
+     * Visits the most recent entries of the threads, up to the global
+     * capacity, oldest first. The buffers are read and merged before the
+     * entries are rendered.
+     *
+     * @param visitor
+     *            the visitor
+     */
+    public void accept(EntryVisitor visitor) {
+        // Merged from the most recent entries, so the merge stops once the
+        // capacity is reached.
+        PriorityQueue<Cursor> cursors = new PriorityQueue<Cursor>();
+        for (ThreadBuffer buffer : buffers) {
+            List<LogEvent> events = new ArrayList<LogEvent>();
+            buffer.entries.collect(events);
+            Cursor cursor = new Cursor(buffer, events);
+            if (cursor.position >= 0) {
+                cursors.add(cursor);
+            } else if (buffer.isDead()) {
+                buffers.remove(buffer);
+            }
+        }
+
+        List<LogEvent> result = new ArrayList<LogEvent>();
+        while (!cursors.isEmpty() && (capacity <= 0 || result.size() < capacity)) {
+            Cursor cursor = cursors.poll();
+            result.add(cursor.events.get(cursor.position));
+            cursor.taken++;
+            if (--cursor.position >= 0) {
+                cursors.add(cursor);
+            }
+        }
+        for (Cursor cursor : cursors) {
+            if (cursor.taken == 0 && cursor.buffer.isDead()) {
+                // Too old to be reported again.
+                buffers.remove(cursor.buffer);
+            }
+        }
+        Collections.reverse(result);
+        EntryRenderer renderer = new EntryRenderer();
+        for (LogEvent event : result) {
+            visitor.visit(renderer.render(event));
+        }
+    }
+
+    /**
+     * Drops the oldest buffers of dead threads above {@link #MAX_DEAD_BUFFERS}.
+     */
+    private void purgeDeadBuffers() {
+        int dead = 0;
+        for (ThreadBuffer buffer : buffers) {
+            if (buffer.isDead()) {
+                dead++;
+            }
+        }
+        Iterator<ThreadBuffer> iterator = buffers.iterator();
+        while (dead > MAX_DEAD_BUFFERS && iterator.hasNext()) {
+            if (iterator.next().isDead()) {
+                iterator.remove();
+                dead--;
+            }
+        }
+    }
+
+    /**
+     * The buffer of a thread.
+     */
+    private static final class ThreadBuffer {
+
+        /**
+         * The thread, weakly referenced so dead threads can be collected.
+         */
+        private final WeakReference<Thread> thread;
+
+        final LogEntryBuffer entries;
+
+        ThreadBuffer(Thread thread, LogEntryBuffer entries) {
+            this.thread = new WeakReference<Thread>(thread);
+            this.entries = entries;
+        }
+
+        boolean isDead() {
+            Thread t = thread.get();
+            return t == null || !t.isAlive();
+        }
+    }
+
+    /**
+     * Position in the events of a buffer, walked from the most recent one.
+     * Cursors are ordered by decreasing key of their current event.
+     */
+    private static final class Cursor implements Comparable<Cursor> {
+
+        final ThreadBuffer buffer;
+
+        final List<LogEvent> events;
+
+        int position;
+
+        /**
+         * The number of events taken from the buffer.
+         */
+        int taken;
+
+        Cursor(ThreadBuffer buffer, List<LogEvent> events) {
+            this.buffer = buffer;
+            this.events = events;
+            this.position = events.size() - 1;
+        }
+
+        public int compareTo(Cursor other) {
+            // Differences of nano times, as they may overflow.
+            long diff = other.events.get(other.position).key - events.get(position).key;
+            return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+        }
+    }
+
+}
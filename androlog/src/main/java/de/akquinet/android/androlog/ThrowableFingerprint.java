@@ -0,0 +1,77 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.Arrays;
+
+/**
+ * Identifies the stack trace of an error: the classes and the frames of the
+ * error and its causes. Two errors thrown from the same place have the same
+ * fingerprint, whatever their messages.
+ */
+final class ThrowableFingerprint {
+
+    /**
+     * Maximum number of causes taken into account.
+     */
+    private static final int MAX_CAUSES = 10;
+
+    private final String[] classes;
+
+    private final StackTraceElement[][] frames;
+
+    private final int hash;
+
+    /**
+     * Computes the fingerprint of an error.
+     *
+     * @param error
+     *            the error
+     */
+    ThrowableFingerprint(Throwable error) {
+        int depth = 0;
+        for (Throwable t = error; t != null && depth <= MAX_CAUSES; t = t.getCause()) {
+            depth++;
+        }
+        classes = new String[depth];
+        frames = new StackTraceElement[depth][];
+        Throwable t = error;
+        for (int i = 0; i < depth; i++) {
+            classes[i] = t.getClass().getName();
+            frames[i] = t.getStackTrace();
+            t = t.getCause();
+        }
+        hash = 31 * Arrays.hashCode(classes) + Arrays.deepHashCode(frames);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ThrowableFingerprint)) {
+            return false;
+        }
+        ThrowableFingerprint other = (ThrowableFingerprint) obj;
+        return hash == other.hash && Arrays.equals(classes, other.classes)
+                && Arrays.deepEquals(frames, other.frames);
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Entry store keeping a separate number of entries for each level tier, so
+ * a stream of debug messages does not evict the warning explaining a crash.
+ * The tiers are {@link Constants#VERBOSE} and {@link Constants#DEBUG},
+ * {@link Constants#INFO}, and {@link Constants#WARN} and above. Each tier is
+ * a {@link LogEntryBuffer} recording the {@link System#nanoTime()} of its
+ * entries; {@link #getEntries()} merges them in time order.
+ */
+final class TieredEntryStore implements EntryStore {
+
+    /**
+     * Orders events by time. Compares the difference of the nano times, as
+     * they may overflow.
+     */
+    private static final Comparator<LogEvent> BY_TIME = new Comparator<LogEvent>() {
+        public int compare(LogEvent e1, LogEvent e2) {
+            long diff = e1.key - e2.key;
+            return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+        }
+    };
+
+    private final LogEntryBuffer debug;
+
+    private final LogEntryBuffer info;
+
+    private final LogEntryBuffer warn;
+
+    /**
+     * Creates the store. A tier with a capacity of 0 or less does not keep
+     * any entry.
+     *
+     * @param debugCapacity
+     *            the number of verbose and debug entries
+     * @param infoCapacity
+     *            the number of info entries
+     * @param warnCapacity
+     *            the number of warning, error and assert entries
+     */
+    TieredEntryStore(int debugCapacity, int infoCapacity, int warnCapacity) {
+        debug = debugCapacity > 0 ? new LogEntryBuffer(debugCapacity, true) : null;
+        info = infoCapacity > 0 ? new LogEntryBuffer(infoCapacity, true) : null;
+        warn = warnCapacity > 0 ? new LogEntryBuffer(warnCapacity, true) : null;
+    }
+
+    /**
+     * Parses the tier capacities: three comma separated numbers of entries,
+     * for the debug, info and warning tiers.
+     *
+     * @param value
+     *            the capacities, such as <code>200,100,50</code>
+     * @return the store or <code>null</code> if the value is not valid
+     */
+    static TieredEntryStore parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        String[] capacities = value.split(",");
+        if (capacities.length != 3) {
+            return null;
+        }
+        try {
+            return new TieredEntryStore(Integer.parseInt(capacities[0].trim()),
+                    Integer.parseInt(capacities[1].trim()), Integer.parseInt(capacities[2].trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public void add(int level, long time, String tag, String message, Throwable error) {
+        LogEntryBuffer tier;
+        if (level <= Constants.DEBUG) {
+            tier = debug;
+        } else if (level == Constants.INFO) {
+            tier = info;
+        } else {
+            tier = warn;
+        }
+        if (tier != null) {
+            tier.add(level, time, tag, message, error);
+        }
+    }
+
+    public List<String> getEntries() {
+        EntryList entries = new EntryList();
+        accept(entries);
+        return entries;
+    }
+
+    /**
+     * Visits the entries of the tiers, in time order. The tiers are read
+     * first, without rendering, then merged.
+     *
+     * @param visitor
+     *            the visitor
+     */
+    public void accept(EntryVisitor visitor) {
+        List<LogEvent> events = new ArrayList<LogEvent>();
+        if (debug != null) {
+            debug.collect(events);
+        }
+        if (info != null) {
+            info.collect(events);
+        }
+        if (warn != null) {
+            warn.collect(events);
+        }
+        Collections.sort(events, BY_TIME);
+        EntryRenderer renderer = new EntryRenderer();
+        for (LogEvent event : events) {
+            visitor.visit(renderer.render(event));
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Formats the timestamps of the report entries as
+ * <code>yyyy-MM-dd HH:mm:ss,SSS/</code>, in the default time zone, like a
+ * {@link SimpleDateFormat} with the same pattern. The digits are written in
+ * a reused character buffer. The date and time up to the second are only
+ * computed when the second changes, so formatting the successive entries of
+ * a report only writes their milliseconds.
+ * <p>
+ * Instances are not thread safe.
+ * </p>
+ */
+final class TimestampFormat {
+
+    /**
+     * The pattern of the formatted timestamps.
+     */
+    static final String PATTERN = "yyyy-MM-dd HH:mm:ss,SSS'/'";
+
+    /**
+     * Length of a formatted timestamp.
+     */
+    private static final int LENGTH = 24;
+
+    /**
+     * Index of the milliseconds in the buffer.
+     */
+    private static final int MILLIS = 20;
+
+    private final char[] buffer = new char[LENGTH];
+
+    private final Calendar calendar = new GregorianCalendar();
+
+    /**
+     * The second written in the buffer, <code>-1</code> if none.
+     */
+    private long second = -1;
+
+    /**
+     * Creates a formatter.
+     */
+    TimestampFormat() {
+        buffer[4] = '-';
+        buffer[7] = '-';
+        buffer[10] = ' ';
+        buffer[13] = ':';
+        buffer[16] = ':';
+        buffer[19] = ',';
+        buffer[23] = '/';
+    }
+
+    /**
+     * Appends a formatted timestamp.
+     *
+     * @param time
+     *            the time in milliseconds, must not be negative
+     * @param out
+     *            the builder to append to
+     */
+    void format(long time, StringBuilder out) {
+        long s = time / 1000;
+        if (s != second) {
+            // The time zone is read again, in case it changed.
+            calendar.setTimeZone(TimeZone.getDefault());
+            calendar.setTimeInMillis(time);
+            int year = calendar.get(Calendar.YEAR);
+            if (year > 9999 || calendar.get(Calendar.ERA) != GregorianCalendar.AD) {
+                second = -1;
+                out.append(new SimpleDateFormat(PATTERN).format(new Date(time)));
+                return;
+            }
+            write(year, 0, 4);
+            write(calendar.get(Calendar.MONTH) + 1, 5, 2);
+            write(calendar.get(Calendar.DAY_OF_MONTH), 8, 2);
+            write(calendar.get(Calendar.HOUR_OF_DAY), 11, 2);
+            write(calendar.get(Calendar.MINUTE), 14, 2);
+            write(calendar.get(Calendar.SECOND), 17, 2);
+            second = s;
+        }
+        write((int) (time % 1000), MILLIS, 3);
+        out.append(buffer);
+    }
+
+    /**
+     * Writes the zero padded digits of a value in the buffer.
+     */
+    private void write(int value, int offset, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+}
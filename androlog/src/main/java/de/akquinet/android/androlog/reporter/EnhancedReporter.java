@@ -22,8 +22,8 @@ import android.content.Context;
 public interface EnhancedReporter extends Reporter {
 
     /**
-     * Asks the reporter to send a report. Called with a new {@link Reporter} instance for each reporter (but reporters
-     * shouldn't modify the report anyway).
+     * Asks the reporter to send a report. The same {@link Report} instance is passed to all the reporters, so
+     * reporters must not modify it.
      * 
      * @param context
      *            the Android context
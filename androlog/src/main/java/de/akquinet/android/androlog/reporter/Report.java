@@ -15,7 +15,6 @@
 package de.akquinet.android.androlog.reporter;
 
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 
 import org.json.JSONArray;
@@ -28,6 +27,7 @@ import android.content.pm.PackageManager.NameNotFoundException;
 import android.os.Build;
 import android.view.Display;
 import android.view.WindowManager;
+import de.akquinet.android.androlog.EntryVisitor;
 import de.akquinet.android.androlog.Log;
 import de.akquinet.android.androlog.LogHelper;
 
@@ -93,6 +93,33 @@ public class Report {
         }
     }
     
+    /**
+     * Adds a trigger of the report. Reports triggered by several log calls
+     * within the window set by
+     * {@link de.akquinet.android.androlog.Constants#ANDROLOG_REPORT_COALESCE_MS}
+     * list their triggers.
+     *
+     * @param message the message of the trigger
+     * @param error the error of the trigger, can be <code>null</code>
+     */
+    public void addTrigger(String message, Throwable error) {
+        try {
+            JSONArray triggers = report.optJSONArray("triggers");
+            if (triggers == null) {
+                triggers = new JSONArray();
+                report.put("triggers", triggers);
+            }
+            JSONObject trigger = new JSONObject();
+            trigger.put("message", message);
+            if (error != null) {
+                trigger.put("error", error.toString());
+            }
+            triggers.put(trigger);
+        } catch (JSONException ex) {
+            ex.printStackTrace(); // not expected
+        }
+    }
+
     public long getCreated() {
         return created;
     }
@@ -138,13 +165,14 @@ public class Report {
      */
     private void buildLog() throws JSONException {
         logs = new JSONObject();
-        List<String> list = Log.getReportedEntries();
-        if (list != null) {
-            logs.put("numberOfEntry", list.size());
-            JSONArray array = new JSONArray();
-            for (String s : list) {
-                array.put(s);
+        final JSONArray array = new JSONArray();
+        boolean collected = Log.visitReportedEntries(new EntryVisitor() {
+            public void visit(String entry) {
+                array.put(entry);
             }
+        });
+        if (collected) {
+            logs.put("numberOfEntry", array.length());
             logs.put("log", array);
         }
     }
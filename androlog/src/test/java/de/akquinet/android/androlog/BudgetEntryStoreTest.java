@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BudgetEntryStoreTest {
+
+    @Test
+    public void testParseSize() {
+        assertEquals(256 * 1024, LogHelper.parseSize("256k"));
+        assertEquals(2 * 1024 * 1024, LogHelper.parseSize(" 2M "));
+        assertEquals(1000, LogHelper.parseSize("1000"));
+        assertEquals(-1, LogHelper.parseSize("0"));
+        assertEquals(-1, LogHelper.parseSize("lots"));
+        assertEquals(-1, LogHelper.parseSize(null));
+    }
+
+    @Test
+    public void testSizeOf() {
+        int line = BudgetEntryStore.sizeOf("tag", "message", null);
+        assertEquals(BudgetEntryStore.ENTRY_SIZE + 40 + 6 + 40 + 14, line);
+        Exception cause = new RuntimeException();
+        Exception outer = new IllegalStateException("outer", cause);
+        int error = BudgetEntryStore.sizeOf("tag", "message", outer);
+        assertEquals(line + 2 * BudgetEntryStore.ERROR_SIZE + 40 + 10, error);
+
+        // The stack traces are not walked.
+        StackTraceElement[] deep = new StackTraceElement[1000];
+        Arrays.fill(deep, new StackTraceElement("Retry", "run", "Retry.java", 42));
+        outer.setStackTrace(deep);
+        assertEquals(error, BudgetEntryStore.sizeOf("tag", "message", outer));
+    }
+
+    @Test
+    public void testEvictionOnBudget() {
+        int entry = BudgetEntryStore.sizeOf("tag", "0", null);
+        BudgetEntryStore store = new BudgetEntryStore(3 * entry, 0);
+        for (int i = 0; i < 5; i++) {
+            store.add(Constants.INFO, -1, "tag", Integer.toString(i), null);
+        }
+        assertEquals(Arrays.asList("I/tag: 2", "I/tag: 3", "I/tag: 4"), store.getEntries());
+        assertEquals(3 * entry, store.getSize());
+
+        // A large entry evicts several small ones.
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < entry; i++) {
+            large.append('x');
+        }
+        store.add(Constants.INFO, -1, "tag", large.toString(), null);
+        assertEquals(Collections.singletonList("I/tag: " + large), store.getEntries());
+
+        store.add(Constants.INFO, -1, "tag", "5", null);
+        List<String> kept = store.getEntries();
+        long size = store.getSize();
+        assertFalse(kept.isEmpty());
+
+        // An entry larger than the budget is not kept, the others are.
+        large.append(large).append(large);
+        store.add(Constants.INFO, -1, "tag", large.toString(), null);
+        assertEquals(kept, store.getEntries());
+        assertEquals(size, store.getSize());
+    }
+
+    @Test
+    public void testEvictionOnCount() {
+        BudgetEntryStore store = new BudgetEntryStore(1024 * 1024, 2);
+        for (int i = 0; i < 5; i++) {
+            store.add(Constants.INFO, -1, "tag", Integer.toString(i), null);
+        }
+        assertEquals(Arrays.asList("I/tag: 3", "I/tag: 4"), store.getEntries());
+    }
+
+    @Test
+    public void testConcurrentEviction() throws InterruptedException {
+        int entry = BudgetEntryStore.sizeOf("tag", "0", null);
+        final BudgetEntryStore store = new BudgetEntryStore(10 * entry, 0);
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            writers[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        store.add(Constants.INFO, -1, "tag", Integer.toString(i % 10), null);
+                    }
+                }
+            };
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        // Evicted down to the budget, not below.
+        assertEquals(10, store.getEntries().size());
+        assertEquals(10 * entry, store.getSize());
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Micro benchmark comparing the caller inference of {@link CallerResolver}
+ * with the former <code>Thread.getStackTrace()</code> scan against an escape
+ * list. This is not a unit test, run it with:
+ * <code>java -cp ... de.akquinet.android.androlog.CallerInferenceBenchmark</code>
+ */
+public class CallerInferenceBenchmark {
+
+    private static final int ITERATIONS = 200000;
+
+    public static void main(String[] args) {
+        List<String> escaped = new ArrayList<String>(Constants.CLASSNAME_TO_ESCAPE);
+        // Applications escaping a few wrappers.
+        for (int i = 0; i < 10; i++) {
+            escaped.add("com.acme.logging.Wrapper" + i);
+        }
+        CallerResolver resolver = new CallerResolver(escaped, false);
+
+        for (int round = 0; round < 3; round++) {
+            long former = measureFormer(escaped, 20);
+            long resolved = measureResolver(resolver, 20);
+            if (round == 2) {
+                System.out.println("Thread.getStackTrace + list: " + former / ITERATIONS + " ns/op");
+                System.out.println("CallerResolver             : " + resolved / ITERATIONS + " ns/op");
+            }
+        }
+    }
+
+    /**
+     * Measures from a stack of the given depth, as log calls happen deep in
+     * the application stack.
+     */
+    private static long measureFormer(List<String> escaped, int depth) {
+        if (depth > 0) {
+            return measureFormer(escaped, depth - 1);
+        }
+        int hits = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (formerGetCaller(escaped) != null) {
+                hits++;
+            }
+        }
+        long time = System.nanoTime() - begin;
+        consume(hits);
+        return time;
+    }
+
+    private static long measureResolver(CallerResolver resolver, int depth) {
+        if (depth > 0) {
+            return measureResolver(resolver, depth - 1);
+        }
+        int hits = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (resolver.getCaller() != null) {
+                hits++;
+            }
+        }
+        long time = System.nanoTime() - begin;
+        consume(hits);
+        return time;
+    }
+
+    /**
+     * The inference used before {@link CallerResolver}.
+     */
+    private static String formerGetCaller(List<String> escaped) {
+        StackTraceElement[] stacks = Thread.currentThread().getStackTrace();
+        if (stacks != null) {
+            for (int i = 0; i < stacks.length; i++) {
+                String cn = stacks[i].getClassName();
+                if (cn != null && !escaped.contains(cn)) {
+                    return cn;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void consume(int hits) {
+        if (hits == -1) {
+            System.out.println(Collections.singleton(hits));
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.Test;
+
+public class CallerResolverTest {
+
+    @Test
+    public void testCaller() {
+        CallerResolver resolver = new CallerResolver(Collections.<String> emptySet(), false);
+        StackTraceElement caller = resolver.getCaller();
+        assertEquals(CallerResolverTest.class.getName(), caller.getClassName());
+        assertEquals("testCaller", caller.getMethodName());
+        assertEquals("msg", resolver.decorate(caller, "msg"));
+    }
+
+    @Test
+    public void testEscapedWrapper() {
+        CallerResolver resolver = new CallerResolver(
+                Collections.singleton(CallerResolverTest.class.getName()), false);
+        assertFalse(CallerResolverTest.class.getName().equals(resolver.getCaller().getClassName()));
+    }
+
+    @Test
+    public void testDetails() {
+        CallerResolver resolver = new CallerResolver(Collections.<String> emptySet(), true);
+        StackTraceElement caller = resolver.getCaller();
+        assertEquals("[testDetails:" + caller.getLineNumber() + "] msg",
+                resolver.decorate(caller, "msg"));
+    }
+
+    @Test
+    public void testConfiguration() {
+        Properties configuration = new Properties();
+        configuration.setProperty(Constants.ANDROLOG_CALLER_ESCAPE, "com.acme.LogWrapper, com.acme.Other");
+        Log.reset();
+        Log.configure(configuration);
+        assertTrue(Log.getConfiguration().escapedCallers.contains("com.acme.Other"));
+        assertEquals(CallerResolverTest.class.getName(), LogHelper.getCaller());
+
+        Log.addEscapedCallerClass(CallerResolverTest.class.getName());
+        assertFalse(CallerResolverTest.class.getName().equals(LogHelper.getCaller()));
+
+        Log.reset();
+        Log.activateLogging();
+        assertEquals(CallerResolverTest.class.getName(), LogHelper.getCaller());
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ClassTagCacheTest {
+
+    @After
+    public void tearDown() {
+        Log.reset();
+        Log.activateLogging();
+    }
+
+    @Test
+    public void testAbbreviation() {
+        assertEquals("c.a.app.ui.MainActivity", ClassTagCache.abbreviate("com.acme.app.ui.MainActivity"));
+        assertEquals("c.a.a.ui.LongActivityNa", ClassTagCache.abbreviate("com.acme.app.ui.LongActivityNa"));
+        assertEquals("LongActivityName", ClassTagCache.abbreviate("com.acme.app.ui.LongActivityName"));
+        assertEquals("AVeryLongActivityNameTh", ClassTagCache.abbreviate("com.acme.AVeryLongActivityNameThatNeverFits"));
+        assertEquals("AVeryLongActivityNameTh", ClassTagCache.abbreviate("AVeryLongActivityNameThatNeverFits"));
+    }
+
+    @Test
+    public void testCache() {
+        ClassTagCache cache = new ClassTagCache(false);
+        ClassTagCache.Entry entry = cache.get(ClassTagCacheTest.class);
+        assertEquals(ClassTagCacheTest.class.getName(), entry.name);
+        assertEquals(ClassTagCacheTest.class.getName(), entry.tag);
+        assertSame(entry, cache.get(ClassTagCacheTest.class));
+
+        cache = new ClassTagCache(true);
+        entry = cache.get(ClassTagCacheTest.class);
+        assertEquals(ClassTagCacheTest.class.getName(), entry.name);
+        assertEquals("ClassTagCacheTest", entry.tag);
+
+        entry = cache.get("com.acme.app.ui.MainActivity");
+        assertEquals("com.acme.app.ui.MainActivity", entry.name);
+        assertEquals("c.a.app.ui.MainActivity", entry.tag);
+        assertSame(entry, cache.get("com.acme.app.ui.MainActivity"));
+    }
+
+    @Test
+    public void testCacheIsKeptAcrossConfigurations() {
+        Properties configuration = new Properties();
+        configuration.setProperty(Constants.ANDROLOG_ACTIVE, "true");
+        configuration.setProperty(Constants.ANDROLOG_TAG_ABBREVIATE, "true");
+        Log.reset();
+        Log.configure(configuration);
+        ClassTagCache cache = Log.getConfiguration().classTags;
+
+        Log.setDefaultLogLevel(Constants.DEBUG);
+        assertSame(cache, Log.getConfiguration().classTags);
+
+        configuration.setProperty(Constants.ANDROLOG_TAG_ABBREVIATE, "false");
+        Log.configure(configuration);
+        assertFalse(Log.getConfiguration().classTags.isAbbreviating());
+    }
+
+    @Test
+    public void testLevelsApplyToQualifiedNames() {
+        Properties configuration = new Properties();
+        configuration.setProperty(Constants.ANDROLOG_ACTIVE, "true");
+        configuration.setProperty(Constants.ANDROLOG_TAG_ABBREVIATE, "true");
+        configuration.setProperty(Constants.ANDROLOG_DEFAULT_LEVEL, "INFO");
+        configuration.setProperty("de.akquinet.android", "ERROR");
+        Log.reset();
+        Log.configure(configuration);
+
+        Logger logger = Log.forObject(this);
+        assertEquals("ClassTagCacheTest", logger.getTag());
+        assertFalse(logger.isWarnEnabled());
+        assertTrue(logger.isErrorEnabled());
+        assertFalse(Log.isLoggable(this, Constants.WARN));
+        assertEquals(0, Log.w(this, "not logged"));
+    }
+
+}
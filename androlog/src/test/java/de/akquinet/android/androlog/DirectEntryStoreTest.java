@@ -0,0 +1,241 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class DirectEntryStoreTest {
+
+    @Test
+    public void testDecoding() {
+        DirectEntryStore store = new DirectEntryStore(1024, 0);
+        store.add(Constants.INFO, -1, "tag", "caf\u00e9 \u2603", null);
+        store.add(Constants.ERROR, 0, "other", "second", null);
+        List<String> entries = store.getEntries();
+        assertEquals(2, entries.size());
+        assertEquals("I/tag: caf\u00e9 \u2603", entries.get(0));
+        assertTrue(entries.get(1), entries.get(1).matches("E/\\d{4}-.*/other: second"));
+    }
+
+    @Test
+    public void testEvictionAcrossTheEnd() {
+        // Five slots, entries of one slot and of two slots.
+        DirectEntryStore store = new DirectEntryStore(5 * DirectEntryStore.SLOT_SIZE + 10, 0);
+        for (int i = 0; i < 4; i++) {
+            store.add(Constants.INFO, -1, "tag", Integer.toString(i), null);
+        }
+        char[] chars = new char[40];
+        Arrays.fill(chars, 'x');
+        String longer = new String(chars);
+        store.add(Constants.INFO, -1, "tag", longer, null);
+        assertEquals(Arrays.asList("I/tag: 1", "I/tag: 2", "I/tag: 3", "I/tag: " + longer),
+                store.getEntries());
+        store.add(Constants.INFO, -1, "tag", "4", null);
+        assertEquals(Arrays.asList("I/tag: 2", "I/tag: 3", "I/tag: " + longer, "I/tag: 4"),
+                store.getEntries());
+
+        store.add(Constants.INFO, -1, "tag", longer + longer + longer + longer + longer + longer + longer, null);
+        assertEquals(Arrays.asList("I/tag: 2", "I/tag: 3", "I/tag: " + longer, "I/tag: 4"),
+                store.getEntries());
+    }
+
+    @Test
+    public void testCount() {
+        DirectEntryStore store = new DirectEntryStore(1024, 3);
+        for (int i = 0; i < 10; i++) {
+            store.add(Constants.INFO, -1, "tag", Integer.toString(i), null);
+        }
+        assertEquals(Arrays.asList("I/tag: 7", "I/tag: 8", "I/tag: 9"), store.getEntries());
+    }
+
+    @Test
+    public void testTagsOutsideTheDictionary() {
+        DirectEntryStore store = new DirectEntryStore(128 * 1024, 0);
+        for (int i = 0; i < DirectEntryStore.MAX_TAGS + 2; i++) {
+            store.add(Constants.INFO, -1, "tag" + i, "m", null);
+        }
+        store.add(Constants.INFO, -1, null, "no tag", null);
+        List<String> entries = store.getEntries();
+        assertEquals(DirectEntryStore.MAX_TAGS + 3, entries.size());
+        assertEquals("I/tag0: m", entries.get(0));
+        assertEquals("I/tag" + (DirectEntryStore.MAX_TAGS + 1) + ": m",
+                entries.get(DirectEntryStore.MAX_TAGS + 1));
+        assertEquals("I/null: no tag", entries.get(DirectEntryStore.MAX_TAGS + 2));
+    }
+
+    @Test
+    public void testMappedFileRecovery() throws IOException {
+        File file = File.createTempFile("androlog", ".ring");
+        try {
+            DirectEntryStore store = DirectEntryStore.open(file, 1024, 0);
+            assertFalse(store.isRecovered());
+            for (int i = 0; i < 5; i++) {
+                store.add(Constants.INFO, -1, "tag", "entry" + i, null);
+            }
+            List<String> entries = store.getEntries();
+            store.add(Constants.ERROR, -1, "tag", "failed", new IllegalStateException("boom"));
+
+            // The process dies without closing the store.
+            store = DirectEntryStore.open(file, 1024, 0);
+            assertTrue(store.isRecovered());
+            // The stack traces are lost, the summaries are kept.
+            entries.add("E/tag: failed\njava.lang.IllegalStateException: boom");
+            assertEquals(entries, store.getEntries());
+            store.add(Constants.INFO, -1, "tag", "next", null);
+            assertEquals("I/tag: next", store.getEntries().get(store.getEntries().size() - 1));
+
+            store.close();
+            store = DirectEntryStore.open(file, 1024, 0);
+            assertFalse(store.isRecovered());
+            assertEquals(Collections.emptyList(), store.getEntries());
+
+            // A file written with another size is not recovered.
+            store.add(Constants.INFO, -1, "tag", "entry", null);
+            store = DirectEntryStore.open(file, 2048, 0);
+            assertFalse(store.isRecovered());
+            assertEquals(Collections.emptyList(), store.getEntries());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testCorruptedRecoveredEntry() throws IOException {
+        File file = File.createTempFile("androlog", ".ring");
+        try {
+            DirectEntryStore store = DirectEntryStore.open(file, 1024, 0);
+            store.add(Constants.INFO, -1, "tag", "corrupted", null);
+            store.add(Constants.INFO, -1, "tag", "kept", null);
+
+            // Mapped stores write their tags, so a tag id is never valid.
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                // Tag id of the first slot.
+                raf.seek(DirectEntryStore.FILE_HEADER + 11);
+                raf.writeShort(DirectEntryStore.MAX_TAGS);
+            } finally {
+                raf.close();
+            }
+            store = DirectEntryStore.open(file, 1024, 0);
+            assertTrue(store.isRecovered());
+            assertEquals(Arrays.asList("I/tag: kept"), store.getEntries());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLongTagIsTruncated() throws IOException {
+        File file = File.createTempFile("androlog", ".ring");
+        try {
+            DirectEntryStore store = DirectEntryStore.open(file, 256 * 1024, 0);
+            char[] chars = new char[DirectEntryStore.MAX_SHORT_LENGTH];
+            Arrays.fill(chars, '\u00e9');
+            store.add(Constants.INFO, -1, new String(chars), "m", null);
+            // Two bytes per character, cut on a character boundary.
+            String tag = new String(chars, 0, DirectEntryStore.MAX_SHORT_LENGTH / 2);
+            assertEquals(Arrays.asList("I/" + tag + ": m"), store.getEntries());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testFileNamePerProcess() {
+        assertEquals(DirectEntryStore.FILE_NAME, DirectEntryStore.getFileName("com.acme", "com.acme"));
+        assertEquals("androlog-entries-remote.ring", DirectEntryStore.getFileName("com.acme",
+                "com.acme:remote"));
+        assertEquals("androlog-entries-com.acme.sync_a.ring", DirectEntryStore.getFileName(
+                "com.acme", "com.acme.sync/a"));
+    }
+
+    @Test
+    public void testMappedTo() throws IOException {
+        File file = File.createTempFile("androlog", ".ring");
+        try {
+            DirectEntryStore store = DirectEntryStore.open(file, 1024 + 10, 0);
+            assertTrue(store.isMappedTo(file, 1024));
+            assertTrue(store.isMappedTo(file, 1024 + 10));
+            assertFalse(store.isMappedTo(file, 2048));
+            assertFalse(store.isMappedTo(new File(file.getPath() + ".other"), 1024));
+            assertFalse(new DirectEntryStore(1024, 0).isMappedTo(file, 1024));
+
+            for (int i = 0; i < 3; i++) {
+                store.add(Constants.INFO, -1, "tag", Integer.toString(i), null);
+            }
+            store.setCapacity(2);
+            assertEquals(Arrays.asList("I/tag: 1", "I/tag: 2"), store.getEntries());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testConcurrentWritersAndReaders() throws InterruptedException {
+        final DirectEntryStore store = new DirectEntryStore(16 * DirectEntryStore.SLOT_SIZE, 0);
+        final AtomicBoolean inconsistent = new AtomicBoolean();
+        Thread[] writers = new Thread[8];
+        for (int t = 0; t < writers.length; t++) {
+            final String tag = "w" + t;
+            // Entries of one to three slots.
+            final String padding = new String(new char[t * 12]).replace('\0', '.');
+            writers[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 20000; i++) {
+                        store.add(Constants.INFO, -1, tag, tag + padding + i, null);
+                    }
+                }
+            };
+        }
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 2000; i++) {
+                    for (String entry : store.getEntries()) {
+                        // I/wN: wN...i
+                        String tag = entry.substring(2, entry.indexOf(':'));
+                        if (!entry.substring(entry.indexOf(": ") + 2).matches(tag + "\\.*\\d+")) {
+                            inconsistent.set(true);
+                        }
+                    }
+                }
+            }
+        };
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        reader.start();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        reader.join();
+        assertFalse(inconsistent.get());
+        assertFalse(store.getEntries().isEmpty());
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contention benchmark of the report entry capture, comparing the
+ * {@link LogEntryBuffer} ring with the former synchronized
+ * <code>ArrayList</code> evicting with <code>remove(0)</code>, and with the
+ * ring storing entries rendered at capture time. Prints the throughput for 1
+ * to 16 logging threads; the scaling across cores is only shown when run on
+ * a multi-core machine. This is not a unit test, run it
+ * with:
+ * <code>java -cp ... de.akquinet.android.androlog.EntryCaptureBenchmark [capacity]</code>
+ */
+public class EntryCaptureBenchmark {
+
+    private static final long DURATION_MS = 500;
+
+    private static final int[] THREADS = { 1, 2, 4, 8, 16 };
+
+    /**
+     * Common interface of the measured buffers.
+     */
+    private interface Capture {
+        void add(String entry);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final int capacity = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        System.out.println("capacity " + capacity + ", "
+                + Runtime.getRuntime().availableProcessors() + " processors");
+        System.out.println("threads   synchronized list (ops/ms)   eager rendering (ops/ms)   ring (ops/ms)");
+        for (int round = 0; round < 2; round++) {
+            for (int threads : THREADS) {
+                final List<String> list = new ArrayList<String>();
+                long locked = measure(threads, new Capture() {
+                    public void add(String entry) {
+                        synchronized (list) {
+                            list.add(entry);
+                            if (list.size() > capacity) {
+                                list.remove(0);
+                            }
+                        }
+                    }
+                });
+                final LogEntryBuffer rendered = new LogEntryBuffer(capacity);
+                long eager = measure(threads, new Capture() {
+                    public void add(String entry) {
+                        // Former capture: rendered with a timestamp on each call.
+                        rendered.add(Constants.INFO, -1, null,
+                                LogHelper.print(Constants.INFO, "Writer", entry, null, true), null);
+                    }
+                });
+                final LogEntryBuffer buffer = new LogEntryBuffer(capacity);
+                long ring = measure(threads, new Capture() {
+                    public void add(String entry) {
+                        buffer.add(Constants.INFO, System.currentTimeMillis(), "Writer", entry, null);
+                    }
+                });
+                // The first round is the warm up.
+                if (round == 1) {
+                    System.out.println(String.format("%7d   %26d   %24d   %13d", threads,
+                            locked / DURATION_MS, eager / DURATION_MS, ring / DURATION_MS));
+                }
+            }
+        }
+    }
+
+    private static long measure(int threads, final Capture capture) throws InterruptedException {
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicLong operations = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final String entry = "I/Writer" + t + ": message";
+            writers[t] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long count = 0;
+                    while (!stop.get()) {
+                        capture.add(entry);
+                        count++;
+                    }
+                    operations.addAndGet(count);
+                }
+            };
+            writers[t].start();
+        }
+        start.countDown();
+        Thread.sleep(DURATION_MS);
+        stop.set(true);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        return operations.get();
+    }
+
+}
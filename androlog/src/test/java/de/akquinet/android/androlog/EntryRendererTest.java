@@ -0,0 +1,76 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+public class EntryRendererTest {
+
+    /**
+     * Counts the rendered traces, as the Android stack trace printer is not
+     * available in the tests.
+     */
+    private static class CountingRenderer extends EntryRenderer {
+        int rendered;
+
+        @Override
+        String renderTrace(Throwable error) {
+            rendered++;
+            return "trace of " + error;
+        }
+    }
+
+    /**
+     * Creates errors thrown from the same place, as a retry loop would.
+     */
+    private static Exception[] fail(String... messages) {
+        Exception[] errors = new Exception[messages.length];
+        for (int i = 0; i < messages.length; i++) {
+            errors[i] = new IllegalStateException(messages[i]);
+        }
+        return errors;
+    }
+
+    private static LogEvent event(String message, Throwable error) {
+        return new LogEvent(0, Constants.ERROR, -1, "tag", message, error);
+    }
+
+    @Test
+    public void testSameTraceRenderedOnce() {
+        Exception[] errors = fail("first", "second");
+        CountingRenderer renderer = new CountingRenderer();
+        assertEquals("E/tag: a\ntrace of java.lang.IllegalStateException: first",
+                renderer.render(event("a", errors[0])));
+        assertEquals("E/tag: b", renderer.render(event("b", null)));
+        assertEquals("E/tag: c\njava.lang.IllegalStateException: second\n\t(same as entry #0)",
+                renderer.render(event("c", errors[1])));
+        assertEquals(1, renderer.rendered);
+
+        renderer.render(event("d", new IllegalArgumentException()));
+        assertEquals(2, renderer.rendered);
+    }
+
+    @Test
+    public void testFingerprint() {
+        Exception[] errors = fail("x", "y");
+        assertEquals(new ThrowableFingerprint(errors[0]), new ThrowableFingerprint(errors[1]));
+        assertFalse(new ThrowableFingerprint(errors[0]).equals(
+                new ThrowableFingerprint(new RuntimeException(errors[0]))));
+    }
+
+}
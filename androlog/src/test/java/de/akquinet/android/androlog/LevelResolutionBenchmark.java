@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Micro benchmark comparing the tag level resolution of
+ * {@link Log#isLoggable(String, int)} with the former uncached walk of the tag
+ * hierarchy. This is not a unit test, run it with:
+ * <code>java -cp ... de.akquinet.android.androlog.LevelResolutionBenchmark</code>
+ */
+public class LevelResolutionBenchmark {
+
+    private static final int ITERATIONS = 5000000;
+
+    private static final String[] TAGS = {
+        "com.acme.app.sync.internal.SyncAdapter",
+        "com.acme.app.ui.main.MainActivity",
+        "com.acme.app.net.http.HttpConnectionFactory",
+        "org.example.lib.Worker"
+    };
+
+    public static void main(String[] args) {
+        Properties configuration = new Properties();
+        configuration.setProperty(Constants.ANDROLOG_ACTIVE, "true");
+        configuration.setProperty(Constants.ANDROLOG_DEFAULT_LEVEL, "INFO");
+        Map<String, Integer> levels = new HashMap<String, Integer>();
+        for (int i = 0; i < 200; i++) {
+            configuration.setProperty("com.acme.module" + i, "DEBUG");
+            levels.put("com.acme.module" + i, Constants.DEBUG);
+        }
+        configuration.setProperty("com.acme.app.net", "VERBOSE");
+        levels.put("com.acme.app.net", Constants.VERBOSE);
+        Log.reset();
+        Log.configure(configuration);
+
+        // Warm up both paths before measuring.
+        for (int round = 0; round < 3; round++) {
+            long walk = measureWalk(levels);
+            long cached = measureLog();
+            if (round == 2) {
+                System.out.println("uncached walk : " + walk / ITERATIONS + " ns/op");
+                System.out.println("Log.isLoggable: " + cached / ITERATIONS + " ns/op");
+            }
+        }
+    }
+
+    private static long measureWalk(Map<String, Integer> levels) {
+        int hits = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            Integer level = walk(levels, TAGS[i & 3]);
+            if (Constants.DEBUG >= (level == null ? Constants.INFO : level)) {
+                hits++;
+            }
+        }
+        long time = System.nanoTime() - begin;
+        consume(hits);
+        return time;
+    }
+
+    private static long measureLog() {
+        int hits = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (Log.isLoggable(TAGS[i & 3], Constants.DEBUG)) {
+                hits++;
+            }
+        }
+        long time = System.nanoTime() - begin;
+        consume(hits);
+        return time;
+    }
+
+    /**
+     * The resolution used before the level cache: tests a.b.c.d, a.b.c, a.b
+     * and a.
+     */
+    private static Integer walk(Map<String, Integer> levels, String tag) {
+        Integer result = levels.get(tag);
+        if (tag != null && result == null) {
+            int index = tag.lastIndexOf(".");
+            while (result == null && index > -1) {
+                result = levels.get(tag.substring(0, index));
+                index = tag.lastIndexOf(".", index - 1);
+            }
+        }
+        return result;
+    }
+
+    private static void consume(int hits) {
+        if (hits == -1) {
+            System.out.println(hits);
+        }
+    }
+
+}
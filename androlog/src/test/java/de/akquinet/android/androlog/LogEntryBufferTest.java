@@ -0,0 +1,158 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LogEntryBufferTest {
+
+    @Test
+    public void testEviction() {
+        LogEntryBuffer buffer = new LogEntryBuffer(3);
+        buffer.add(Constants.INFO, -1, "tag", "a", null);
+        buffer.add(Constants.INFO, -1, "tag", "b", null);
+        assertEquals(Arrays.asList("I/tag: a", "I/tag: b"), buffer.getEntries());
+        buffer.add(Constants.INFO, -1, "tag", "c", null);
+        buffer.add(Constants.INFO, -1, "tag", "d", null);
+        buffer.add(Constants.INFO, -1, "tag", "e", null);
+        assertEquals(Arrays.asList("I/tag: c", "I/tag: d", "I/tag: e"), buffer.getEntries());
+    }
+
+    @Test
+    public void testOrderAfterWrapping() {
+        LogEntryBuffer buffer = new LogEntryBuffer(1000);
+        for (int i = 0; i < 2500; i++) {
+            buffer.add(Constants.INFO, -1, "tag", "entry" + i, null);
+        }
+        List<String> entries = buffer.getEntries();
+        assertEquals(1000, entries.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("I/tag: entry" + (1500 + i), entries.get(i));
+        }
+    }
+
+    @Test
+    public void testRendering() {
+        LogEntryBuffer buffer = new LogEntryBuffer(2);
+        buffer.add(Constants.WARN, 0, "tag", "msg", null);
+        String entry = buffer.getEntries().get(0);
+        assertTrue(entry, entry.matches("W/\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2},\\d{3}/tag: msg"));
+    }
+
+    @Test
+    public void testUnbounded() {
+        LogEntryBuffer buffer = new LogEntryBuffer(0);
+        for (int i = 0; i < 100; i++) {
+            buffer.add(Constants.INFO, -1, "tag", "entry" + i, null);
+        }
+        assertEquals(100, buffer.getEntries().size());
+    }
+
+    @Test
+    public void testConcurrentWriters() throws InterruptedException {
+        final LogEntryBuffer buffer = new LogEntryBuffer(50);
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            final String name = "writer" + t;
+            writers[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        buffer.add(Constants.INFO, -1, "tag", name, null);
+                    }
+                }
+            };
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        List<String> entries = buffer.getEntries();
+        assertEquals(50, entries.size());
+        assertTrue(entries.get(0).startsWith("I/tag: writer"));
+    }
+
+    @Test
+    public void testVisitWhileWriting() {
+        final LogEntryBuffer buffer = new LogEntryBuffer(3);
+        buffer.add(Constants.INFO, -1, "tag", "a", null);
+        buffer.add(Constants.INFO, -1, "tag", "b", null);
+        buffer.add(Constants.INFO, -1, "tag", "c", null);
+        final List<String> visited = new ArrayList<String>();
+        buffer.accept(new EntryVisitor() {
+            public void visit(String entry) {
+                visited.add(entry);
+                // Overwrites the visited entry and the next one.
+                buffer.add(Constants.INFO, -1, "tag", "x", null);
+                buffer.add(Constants.INFO, -1, "tag", "x", null);
+            }
+        });
+        // b was overwritten before being read, c is still there.
+        assertEquals(Arrays.asList("I/tag: a", "I/tag: c"), visited);
+        assertEquals(Arrays.asList("I/tag: x", "I/tag: x", "I/tag: x"), buffer.getEntries());
+    }
+
+    @Test
+    public void testConsistentEntriesWhileWrapping() throws InterruptedException {
+        final LogEntryBuffer buffer = new LogEntryBuffer(2);
+        final Throwable[] errors = new Throwable[8];
+        final Thread[] writers = new Thread[errors.length];
+        for (int t = 0; t < writers.length; t++) {
+            final int id = t;
+            errors[t] = new IllegalStateException("writer" + t);
+            writers[t] = new Thread() {
+                public void run() {
+                    // Every field is derived from the writer and the counter.
+                    for (int i = 0; i < 200000; i++) {
+                        buffer.add(Constants.VERBOSE + (id + i) % 6, id * 1000000L + i, "w" + id,
+                                id + ":" + i, i % 2 == 0 ? null : errors[id]);
+                    }
+                }
+            };
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        int checked = 0;
+        boolean running = true;
+        while (running) {
+            running = false;
+            for (Thread writer : writers) {
+                running |= writer.isAlive();
+            }
+            List<LogEvent> events = new ArrayList<LogEvent>();
+            buffer.collect(events);
+            for (LogEvent event : events) {
+                String[] parts = event.message.split(":");
+                int id = Integer.parseInt(parts[0]);
+                int i = Integer.parseInt(parts[1]);
+                assertEquals(Constants.VERBOSE + (id + i) % 6, event.level);
+                assertEquals(id * 1000000L + i, event.time);
+                assertEquals("w" + id, event.tag);
+                assertSame(i % 2 == 0 ? null : errors[id], event.error);
+                checked++;
+            }
+        }
+        assertTrue(checked > 0);
+    }
+
+}
@@ -25,6 +25,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -221,6 +222,90 @@ public class LogTest {
         assertTrue(Log.isLoggable("my.log.assert2", Constants.ASSERT));
     }
 
+    @Test
+    public void testLevelsAfterReconfiguration() {
+        Properties props = new Properties();
+        props.setProperty(Constants.ANDROLOG_ACTIVE, "true");
+        props.setProperty("my.log", "DEBUG");
+        Log.reset();
+        Log.configure(props);
+        assertTrue(Log.isLoggable("my.log.Child", Constants.DEBUG));
+        assertFalse(Log.isLoggable("other.Child", Constants.DEBUG));
+
+        props.setProperty("my.log", "WARN");
+        Log.reset();
+        Log.configure(props);
+        assertFalse(Log.isLoggable("my.log.Child", Constants.DEBUG));
+
+        Log.setDefaultLogLevel(Constants.DEBUG);
+        assertTrue(Log.isLoggable("other.Child", Constants.DEBUG));
+    }
+
+    @Test
+    public void testConcurrentReconfiguration() throws InterruptedException {
+        final Properties debug = new Properties();
+        debug.setProperty(Constants.ANDROLOG_ACTIVE, "true");
+        debug.setProperty("my.log", "DEBUG");
+        final Throwable[] failure = new Throwable[1];
+        final AtomicBoolean stop = new AtomicBoolean();
+        Thread logger = new Thread() {
+            public void run() {
+                try {
+                    while (!stop.get()) {
+                        Log.isLoggable("my.log.Child", Constants.DEBUG);
+                        // Never loggable, so the Android Log is not called.
+                        Log.v("my.log.Child", "ignored");
+                    }
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            }
+        };
+        logger.start();
+        for (int i = 0; i < 1000; i++) {
+            Log.reset();
+            Log.configure(debug);
+            Log.setDefaultLogLevel(Constants.ERROR);
+        }
+        stop.set(true);
+        logger.join();
+        assertThat(failure[0], is((Throwable) null));
+    }
+
+    @Test
+    public void testLazyMessageIsNotBuiltWhenDisabled() {
+        final AtomicBoolean built = new AtomicBoolean();
+        LazyMessage message = new LazyMessage() {
+            public String build() {
+                built.set(true);
+                return "built";
+            }
+        };
+        Log.reset();
+        Log.activateLogging();
+        Log.setDefaultLogLevel(Constants.INFO);
+
+        assertThat(Log.d("my.log", message), is(0));
+        assertThat(Log.v("my.log", message, new Exception()), is(0));
+        assertThat(Log.forTag("my.log").d(message), is(0));
+        assertFalse(built.get());
+    }
+
+    @Test
+    public void testPatternMessagesWhenDisabled() {
+        Log.reset();
+        Log.activateLogging();
+        Log.setDefaultLogLevel(Constants.INFO);
+
+        assertThat(Log.d("my.log", "count={}", 42), is(0));
+        assertThat(Log.v("my.log", "took {}ms", 12L), is(0));
+        assertThat(Log.d("my.log", "{} of {}", 3, 4), is(0));
+        assertThat(Log.v("my.log", "{} of {}", 0.5, 1), is(0));
+        assertThat(Log.d("my.log", "{} is {}", "flag", true), is(0));
+        assertThat(Log.v("my.log", "key {}", 'k'), is(0));
+        assertThat(Log.d("my.log", "{}, {} and {}", "a", "b", "c"), is(0));
+    }
+
     @Test
     public void testIsAssertLoggable() {
         assertTrue(Log.isLoggable("any", Constants.ASSERT));
@@ -232,4 +317,10 @@ public class LogTest {
         assertTrue(Log.isLoggable(this, Constants.ASSERT));
     }
 
+    @Test
+    public void testNullObjectIsNotLoggable() {
+        assertFalse(Log.isLoggable((Object) null, Constants.ASSERT));
+        assertThat(Log.e((Object) null, "ignored"), is(0));
+    }
+
 }
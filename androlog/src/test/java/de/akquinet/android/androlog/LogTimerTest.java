@@ -0,0 +1,58 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LogTimerTest {
+
+    @Test
+    public void testTasksRunInTimeOrder() throws InterruptedException {
+        final List<String> runs = new CopyOnWriteArrayList<String>();
+        final CountDownLatch done = new CountDownLatch(2);
+        long start = System.nanoTime();
+        LogTimer.schedule(new Runnable() {
+            public void run() {
+                runs.add("late");
+                done.countDown();
+            }
+        }, 100);
+        LogTimer.schedule(new Runnable() {
+            public void run() {
+                throw new IllegalStateException("failing");
+            }
+        }, 0);
+        LogTimer.schedule(new Runnable() {
+            public void run() {
+                runs.add("early");
+                done.countDown();
+            }
+        }, 20);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+        assertEquals("early", runs.get(0));
+        assertEquals("late", runs.get(1));
+    }
+
+}
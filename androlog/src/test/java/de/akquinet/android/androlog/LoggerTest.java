@@ -0,0 +1,78 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoggerTest {
+
+    private Properties configuration;
+
+    @Before
+    public void setUp() {
+        configuration = new Properties();
+        configuration.setProperty(Constants.ANDROLOG_ACTIVE, "true");
+        configuration.setProperty("my.log", "DEBUG");
+        Log.reset();
+        Log.configure(configuration);
+    }
+
+    @Test
+    public void testLevelsFollowConfiguration() {
+        Logger logger = Log.forTag("my.log.Child");
+        assertEquals("my.log.Child", logger.getTag());
+        assertTrue(logger.isDebugEnabled());
+        assertFalse(logger.isVerboseEnabled());
+
+        configuration.setProperty("my.log", "WARN");
+        Log.configure(configuration);
+        assertFalse(logger.isDebugEnabled());
+        assertFalse(logger.isInfoEnabled());
+        assertTrue(logger.isWarnEnabled());
+        assertTrue(logger.isErrorEnabled());
+
+        Log.deactivateLogging();
+        assertFalse(logger.isErrorEnabled());
+        assertTrue(logger.isLoggable(Constants.ASSERT));
+
+        Log.reset();
+        Log.activateLogging();
+        assertTrue(logger.isInfoEnabled());
+        assertFalse(logger.isDebugEnabled());
+    }
+
+    @Test
+    public void testClassAndObjectTags() {
+        assertEquals(LoggerTest.class.getName(), Log.forClass(LoggerTest.class).getTag());
+        assertEquals(LoggerTest.class.getName(), Log.forObject(this).getTag());
+        assertEquals(Log.isLoggable(this, Constants.INFO),
+                Log.forObject(this).isInfoEnabled());
+    }
+
+    @Test
+    public void testDisabledMessagesAreNotLogged() {
+        Logger logger = Log.forTag("my.log.Child");
+        assertEquals(0, logger.v("not logged"));
+        assertEquals(0, logger.v("not logged", new Exception()));
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class MessageFormatterTest {
+
+    @Test
+    public void testPrimitives() {
+        assertEquals("count=42", MessageFormatter.format("count={}", 42));
+        assertEquals("took 12345678901ms", MessageFormatter.format("took {}ms", 12345678901L));
+        assertEquals("ratio 0.5", MessageFormatter.format("ratio {}", 0.5d));
+        assertEquals("[true]", MessageFormatter.format("[{}]", true));
+        assertEquals("key a", MessageFormatter.format("key {}", 'a'));
+        assertEquals("3 of 4", MessageFormatter.format("{} of {}", 3L, 4L));
+        assertEquals("0.25 of 1.0", MessageFormatter.format("{} of {}", 0.25d, 1d));
+    }
+
+    @Test
+    public void testObjects() {
+        assertEquals("a=x, b=null", MessageFormatter.format("a={}, b={}", "x", null));
+        assertEquals("1-2-3", MessageFormatter.format("{}-{}-{}", 1, "2", '3'));
+        assertEquals("value null", MessageFormatter.format("value {}", (Object) null));
+    }
+
+    @Test
+    public void testNestedFormat() {
+        Object nested = new Object() {
+            public String toString() {
+                return MessageFormatter.format("inner {}", 1L);
+            }
+        };
+        assertEquals("outer [inner 1] done", MessageFormatter.format("outer [{}] {}", nested, "done"));
+
+        Object failing = new Object() {
+            public String toString() {
+                throw new IllegalStateException();
+            }
+        };
+        try {
+            MessageFormatter.format("{}", failing);
+        } catch (IllegalStateException e) {
+            // Expected, the builder is released.
+        }
+        assertEquals("outer [inner 1]", MessageFormatter.format("outer [{}]", nested));
+    }
+
+    @Test
+    public void testMissingOrExtraPlaceholders() {
+        assertEquals("no placeholder", MessageFormatter.format("no placeholder", 1));
+        assertEquals("a {}", MessageFormatter.format("{} {}", "a"));
+        assertEquals("a b", MessageFormatter.format("{} {}", "a", "b", "c"));
+        assertEquals("null", MessageFormatter.format(null, 1));
+    }
+
+    @Test
+    public void testLongMessages() {
+        StringBuilder pattern = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            pattern.append("{}");
+        }
+        String first = MessageFormatter.format(pattern.toString(), "abcdef");
+        assertEquals("abcdef" + pattern.substring(2), first);
+        assertEquals("x", MessageFormatter.format("{}", "x"));
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @After
+    public void tearDown() {
+        Log.reset();
+        Log.activateLogging();
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(50, RateLimiter.parse("50/s").getRate());
+        assertEquals(SECOND, RateLimiter.parse("50").getPeriod());
+        assertEquals(60 * SECOND, RateLimiter.parse(" 10 / m ").getPeriod());
+        assertEquals(3600 * SECOND, RateLimiter.parse("10/h").getPeriod());
+        assertNull(RateLimiter.parse("0/s"));
+        assertNull(RateLimiter.parse("many"));
+        assertNull(RateLimiter.parse("10/d"));
+    }
+
+    @Test
+    public void testBurstAndRefill() {
+        long now = 1000 * SECOND;
+        RateLimiter limiter = new RateLimiter(10, SECOND, now);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire(now));
+        }
+        assertFalse(limiter.tryAcquire(now));
+        assertFalse(limiter.tryAcquire(now + SECOND / 20));
+        // One token every 100ms.
+        assertTrue(limiter.tryAcquire(now + SECOND / 10));
+        assertFalse(limiter.tryAcquire(now + SECOND / 10));
+        // A full period later, the bucket is full again.
+        now += 3 * SECOND;
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire(now));
+        }
+        assertFalse(limiter.tryAcquire(now));
+    }
+
+    @Test
+    public void testSuppressedSummary() {
+        long now = 1000 * SECOND;
+        RateLimiter limiter = new RateLimiter(1, SECOND, now);
+        assertTrue(limiter.tryAcquire(now));
+        assertFalse(limiter.tryAcquire(now));
+        assertFalse(limiter.tryAcquire(now));
+        // At most one summary per period.
+        assertEquals(0, limiter.pollSuppressed(now + SECOND / 2));
+        assertEquals(2, limiter.pollSuppressed(now + SECOND));
+        assertEquals(0, limiter.pollSuppressed(now + 3 * SECOND));
+    }
+
+    @Test
+    public void testScheduledSummary() {
+        long now = 1000 * SECOND;
+        RateLimiter limiter = new RateLimiter(1, SECOND, now);
+        assertTrue(limiter.tryAcquire(now));
+        assertFalse(limiter.hasSuppressed());
+        assertFalse(limiter.tryAcquire(now + SECOND / 4));
+        assertTrue(limiter.hasSuppressed());
+        assertTrue(limiter.schedule());
+        assertFalse(limiter.schedule());
+        assertEquals(3 * SECOND / 4, limiter.getSummaryDelay(now + SECOND / 4));
+
+        assertEquals(1, limiter.pollScheduled(now + SECOND));
+        assertFalse(limiter.hasSuppressed());
+        assertEquals(SECOND, limiter.getSummaryDelay(now + SECOND));
+        assertTrue(limiter.schedule());
+    }
+
+    @Test
+    public void testConfiguration() {
+        Properties configuration = new Properties();
+        configuration.setProperty(Constants.ANDROLOG_RATELIMIT_PREFIX + "com.acme.sync", "50/s");
+        configuration.setProperty(Constants.ANDROLOG_RATELIMIT_PREFIX + "com.acme.ui", "invalid");
+        Log.reset();
+        Log.configure(configuration);
+
+        LogConfiguration config = Log.getConfiguration();
+        RateLimiter limiter = config.getRateLimiter("com.acme.sync");
+        assertNotNull(limiter);
+        assertSame(limiter, config.getRateLimiter("com.acme.sync.Worker"));
+        assertNull(config.getRateLimiter("com.acme.synchronizer"));
+        assertNull(config.getRateLimiter("com.acme.ui"));
+        // Rate limits are not log levels.
+        assertTrue(config.logLevels.isEmpty());
+
+        // Other configuration changes keep the limiters.
+        Log.setDefaultLogLevel(Constants.DEBUG);
+        assertSame(limiter, Log.getConfiguration().getRateLimiter("com.acme.sync"));
+    }
+
+}
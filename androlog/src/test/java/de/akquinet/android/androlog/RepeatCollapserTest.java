@@ -0,0 +1,138 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RepeatCollapserTest {
+
+    @After
+    public void tearDown() {
+        Log.reset();
+        Log.activateLogging();
+    }
+
+    @Test
+    public void testMatches() {
+        RepeatCollapser.Run run = new RepeatCollapser(1000).getRun();
+        assertFalse(run.matches(Constants.INFO, "tag", "msg"));
+
+        run.begin(Constants.INFO, "tag", "tag", "msg", true, 0);
+        assertTrue(run.matches(Constants.INFO, "tag", new String("msg")));
+        assertFalse(run.matches(Constants.WARN, "tag", "msg"));
+        assertFalse(run.matches(Constants.INFO, "other", "msg"));
+        assertFalse(run.matches(Constants.INFO, "tag", "other"));
+
+        run.clear();
+        assertFalse(run.matches(Constants.INFO, "tag", "msg"));
+    }
+
+    @Test
+    public void testExpiration() {
+        RepeatCollapser collapser = new RepeatCollapser(1000);
+        RepeatCollapser.Run run = collapser.getRun();
+        long now = TimeUnit.SECONDS.toNanos(100);
+        run.begin(Constants.INFO, "tag", "tag", "msg", true, now);
+        assertFalse(collapser.isExpired(run, now + TimeUnit.MILLISECONDS.toNanos(999)));
+        assertTrue(collapser.isExpired(run, now + TimeUnit.MILLISECONDS.toNanos(1000)));
+    }
+
+    @Test
+    public void testRunsArePerThread() throws InterruptedException {
+        final RepeatCollapser collapser = new RepeatCollapser(1000);
+        final AtomicReference<RepeatCollapser.Run> other = new AtomicReference<RepeatCollapser.Run>();
+        Thread thread = new Thread() {
+            public void run() {
+                other.set(collapser.getRun());
+            }
+        };
+        thread.start();
+        thread.join();
+        assertNotNull(other.get());
+        assertNotSame(other.get(), collapser.getRun());
+        assertSame(collapser.getRun(), collapser.getRun());
+    }
+
+    @Test
+    public void testDrainRunsOfAllThreads() throws InterruptedException {
+        final RepeatCollapser collapser = new RepeatCollapser(1000);
+        final long now = TimeUnit.SECONDS.toNanos(100);
+        Thread thread = new Thread() {
+            public void run() {
+                RepeatCollapser.Run run = collapser.getRun();
+                run.begin(Constants.WARN, "other", "other", "msg", false, now);
+                run.count = 2;
+            }
+        };
+        thread.start();
+        thread.join();
+        RepeatCollapser.Run run = collapser.getRun();
+        run.begin(Constants.INFO, "tag", "tag", "msg", true, now + TimeUnit.MILLISECONDS.toNanos(500));
+        run.count = 3;
+        assertTrue(collapser.hasPending());
+        assertTrue(collapser.schedule());
+        assertFalse(collapser.schedule());
+
+        // Only the run of the other thread lasted longer than the timeout.
+        List<RepeatCollapser.Summary> summaries = collapser.drain(
+                now + TimeUnit.MILLISECONDS.toNanos(1000), true);
+        assertEquals(1, summaries.size());
+        assertEquals("other", summaries.get(0).tag);
+        assertEquals("Last message repeated 2 times", summaries.get(0).getMessage());
+        assertTrue(collapser.schedule());
+
+        summaries = collapser.drain(now + TimeUnit.MILLISECONDS.toNanos(1000), false);
+        assertEquals(1, summaries.size());
+        assertEquals("tag", summaries.get(0).tag);
+        assertEquals(3, summaries.get(0).count);
+        assertFalse(collapser.hasPending());
+        assertTrue(run.matches(Constants.INFO, "tag", "msg"));
+    }
+
+    @Test
+    public void testConfiguration() {
+        Properties configuration = new Properties();
+        configuration.setProperty(Constants.ANDROLOG_REPEAT_COLLAPSE, "true");
+        configuration.setProperty(Constants.ANDROLOG_REPEAT_TIMEOUT, "200");
+        Log.reset();
+        Log.configure(configuration);
+        RepeatCollapser collapser = Log.getConfiguration().repeatCollapser;
+        assertNotNull(collapser);
+
+        // Messages neither logged nor collected are ignored.
+        Log.d("tag", "msg");
+        Log.d("tag", "msg");
+        assertNull(collapser.getRun().message);
+
+        configuration.setProperty(Constants.ANDROLOG_REPEAT_COLLAPSE, "false");
+        Log.configure(configuration);
+        assertNull(Log.getConfiguration().repeatCollapser);
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ReportCoalescerTest {
+
+    @Test
+    public void testBurst() {
+        ReportCoalescer coalescer = new ReportCoalescer(200);
+        Exception error = new IllegalStateException("boom");
+        ReportCoalescer.Batch batch = coalescer.add("first", null);
+        assertNotNull(batch);
+        assertNull(coalescer.add("second", error));
+        assertNull(coalescer.add("third", null));
+        long delay = coalescer.getDelay(batch);
+        assertTrue(Long.toString(delay), delay > 0 && delay <= 201);
+        coalescer.close(batch);
+
+        assertEquals(3, batch.count);
+        assertSame(error, batch.getError());
+        assertEquals("first\n3 report triggers:\n - first\n - second ("
+                + error + ")\n - third", batch.getSummary());
+
+        // The batch is closed, the next trigger opens a new batch.
+        ReportCoalescer.Batch next = coalescer.add("fourth", null);
+        assertNotSame(batch, next);
+        coalescer.close(next);
+        assertEquals("fourth", next.getSummary());
+    }
+
+    @Test
+    public void testWindowEnds() throws InterruptedException {
+        ReportCoalescer coalescer = new ReportCoalescer(50);
+        ReportCoalescer.Batch batch = coalescer.add("first", null);
+        Thread.sleep(coalescer.getDelay(batch));
+        assertEquals(0, coalescer.getDelay(batch));
+        // Not closed yet, but a trigger after the window opens a new batch.
+        ReportCoalescer.Batch next = coalescer.add("second", null);
+        assertNotNull(next);
+        assertNotSame(batch, next);
+        assertEquals(1, batch.count);
+    }
+
+    @Test
+    public void testListedTriggersAreBounded() {
+        ReportCoalescer coalescer = new ReportCoalescer(1000);
+        ReportCoalescer.Batch batch = coalescer.add("0", null);
+        for (int i = 1; i < 50; i++) {
+            coalescer.add(Integer.toString(i), null);
+        }
+        coalescer.close(batch);
+        assertEquals(50, batch.count);
+        assertEquals(ReportCoalescer.MAX_TRIGGERS, batch.triggers.size());
+    }
+
+}
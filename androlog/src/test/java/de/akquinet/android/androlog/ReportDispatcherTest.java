@@ -0,0 +1,105 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ReportDispatcherTest {
+
+    private final List<Integer> sent = Collections.synchronizedList(new ArrayList<Integer>());
+
+    private final CountDownLatch blocked = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private Runnable report(final int id) {
+        return new Runnable() {
+            public void run() {
+                if (id == 0) {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                sent.add(id);
+            }
+        };
+    }
+
+    /**
+     * Sends a report blocking the dispatcher thread, then 4 more while it
+     * is blocked, and waits for the queued reports to be sent.
+     */
+    private void storm(ReportDispatcher dispatcher) throws InterruptedException {
+        dispatcher.dispatch(report(0));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 4; i++) {
+            dispatcher.dispatch(report(i));
+        }
+        release.countDown();
+        dispatcher.shutdown();
+        // Three reports are expected, the others are dropped.
+        for (int i = 0; i < 500 && sent.size() < 3; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testDropNewest() throws InterruptedException {
+        ReportDispatcher dispatcher = new ReportDispatcher(2, false);
+        storm(dispatcher);
+        assertEquals(Arrays.asList(0, 1, 2), sent);
+        assertEquals(2, dispatcher.getDropped());
+    }
+
+    @Test
+    public void testDropOldest() throws InterruptedException {
+        ReportDispatcher dispatcher = new ReportDispatcher(2, true);
+        storm(dispatcher);
+        assertEquals(Arrays.asList(0, 3, 4), sent);
+        assertEquals(2, dispatcher.getDropped());
+    }
+
+    @Test
+    public void testDroppedTriggers() throws InterruptedException {
+        ReportDispatcher dispatcher = new ReportDispatcher(1, true);
+        dispatcher.dispatch(report(0));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        // Coalesced reports of 5, 1 and 7 triggers, only the last one is kept.
+        dispatcher.dispatch(report(1), 5);
+        dispatcher.dispatch(report(2), 1);
+        dispatcher.dispatch(report(3), 7);
+        release.countDown();
+        dispatcher.shutdown();
+        for (int i = 0; i < 500 && sent.size() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList(0, 3), sent);
+        assertEquals(6, dispatcher.getDropped());
+    }
+
+}
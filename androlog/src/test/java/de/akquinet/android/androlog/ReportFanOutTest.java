@@ -0,0 +1,176 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import android.content.Context;
+import de.akquinet.android.androlog.ReportResult.Outcome;
+import de.akquinet.android.androlog.reporter.Reporter;
+
+public class ReportFanOutTest {
+
+    /**
+     * Reporter taking the given time and returning the given result, or
+     * throwing an exception if the result is <code>null</code>.
+     */
+    private static class FakeReporter implements Reporter {
+
+        private final long delay;
+
+        private final Boolean result;
+
+        volatile boolean called;
+
+        FakeReporter(long delay, Boolean result) {
+            this.delay = delay;
+            this.result = result;
+        }
+
+        public void configure(Properties configuration) {
+            // Nothing to configure.
+        }
+
+        public boolean send(Context context, String message, Throwable error) {
+            called = true;
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return false;
+            }
+            if (result == null) {
+                throw new IllegalStateException("broken");
+            }
+            return result;
+        }
+    }
+
+    @Test
+    public void testFailureDoesNotSkipReporters() {
+        FakeReporter failing = new FakeReporter(0, false);
+        FakeReporter broken = new FakeReporter(0, null);
+        FakeReporter working = new FakeReporter(0, true);
+        List<Reporter> reporters = Arrays.<Reporter> asList(failing, broken, working);
+        ReportResult result = ReportFanOut.send(reporters, new long[3], null, null, null, "m", null);
+
+        assertTrue(working.called);
+        assertFalse(result.isSuccessful());
+        assertEquals(Outcome.FAILED, result.getDeliveries().get(0).getOutcome());
+        assertEquals(Outcome.ERROR, result.getDeliveries().get(1).getOutcome());
+        assertEquals("broken", result.getDeliveries().get(1).getError().getMessage());
+        assertEquals(Outcome.SENT, result.getDeliveries().get(2).getOutcome());
+    }
+
+    @Test
+    public void testConcurrentReportersWithTimeout() {
+        FakeReporter slow = new FakeReporter(300, true);
+        FakeReporter stuck = new FakeReporter(10000, true);
+        FakeReporter fast = new FakeReporter(0, true);
+        List<Reporter> reporters = Arrays.<Reporter> asList(slow, stuck, fast);
+        ReportResult result = ReportFanOut.send(reporters, new long[] { 0, 300, 0 }, null, null, null,
+                "m", null);
+
+        assertEquals(Outcome.SENT, result.getDeliveries().get(0).getOutcome());
+        assertEquals(Outcome.TIMED_OUT, result.getDeliveries().get(1).getOutcome());
+        assertEquals(Outcome.SENT, result.getDeliveries().get(2).getOutcome());
+        assertTrue(result.getDeliveries().get(2).getLatency() < 300);
+        // The slowest reporter, not the sum of the reporters.
+        assertTrue(result.getLatency() < 2000);
+    }
+
+    @Test
+    public void testOverlappingReportsReachTheReporter() throws InterruptedException {
+        final CountDownLatch entered = new CountDownLatch(2);
+        final Reporter reporter = new Reporter() {
+            public void configure(Properties configuration) {
+                // Nothing to configure.
+            }
+
+            public boolean send(Context context, String message, Throwable error) {
+                entered.countDown();
+                try {
+                    // Both reports must be running at the same time.
+                    return entered.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+        };
+        final ReportResult[] results = new ReportResult[2];
+        Thread other = new Thread() {
+            public void run() {
+                results[1] = ReportFanOut.send(Arrays.asList(reporter), new long[1], null, null,
+                        null, "m", null);
+            }
+        };
+        other.start();
+        results[0] = ReportFanOut.send(Arrays.asList(reporter), new long[] { 10000 }, null, null,
+                null, "m", null);
+        other.join();
+
+        assertEquals(Outcome.SENT, results[0].getDeliveries().get(0).getOutcome());
+        assertEquals(Outcome.SENT, results[1].getDeliveries().get(0).getOutcome());
+    }
+
+    @Test
+    public void testStuckReporterIsSkipped() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        Reporter stuck = new Reporter() {
+            public void configure(Properties configuration) {
+                // Nothing to configure.
+            }
+
+            public boolean send(Context context, String message, Throwable error) {
+                // Ignores the interruptions.
+                while (true) {
+                    try {
+                        return release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        continue;
+                    }
+                }
+            }
+        };
+        List<Reporter> reporters = Arrays.<Reporter> asList(stuck);
+        long[] timeouts = new long[] { 100 };
+        ReportResult result = ReportFanOut.send(reporters, timeouts, null, null, null, "m", null);
+        assertEquals(Outcome.TIMED_OUT, result.getDeliveries().get(0).getOutcome());
+
+        // Still running, not called again.
+        result = ReportFanOut.send(reporters, timeouts, null, null, null, "m", null);
+        assertEquals(Outcome.SKIPPED, result.getDeliveries().get(0).getOutcome());
+
+        release.countDown();
+        for (int i = 0; i < 100; i++) {
+            result = ReportFanOut.send(reporters, timeouts, null, null, null, "m", null);
+            if (result.getDeliveries().get(0).getOutcome() != Outcome.SKIPPED) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+        assertEquals(Outcome.SENT, result.getDeliveries().get(0).getOutcome());
+    }
+
+}
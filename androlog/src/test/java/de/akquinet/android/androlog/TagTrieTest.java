@@ -0,0 +1,74 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TagTrieTest {
+
+    @Test
+    public void testLongestPrefix() {
+        Map<String, Integer> levels = new HashMap<String, Integer>();
+        levels.put("a", 1);
+        levels.put("a.b", 2);
+        levels.put("a.b.c.d", 4);
+        TagTrie<Integer> trie = new TagTrie<Integer>(levels);
+
+        assertEquals(Integer.valueOf(1), trie.get("a"));
+        assertEquals(Integer.valueOf(2), trie.get("a.b"));
+        assertEquals(Integer.valueOf(2), trie.get("a.b.c"));
+        assertEquals(Integer.valueOf(4), trie.get("a.b.c.d"));
+        assertEquals(Integer.valueOf(4), trie.get("a.b.c.d.e"));
+        assertEquals(Integer.valueOf(1), trie.get("a.x"));
+        assertNull(trie.get("b"));
+        assertNull(trie.get(null));
+    }
+
+    @Test
+    public void testSegmentBoundaries() {
+        Map<String, Integer> levels = new HashMap<String, Integer>();
+        levels.put("my.log", 1);
+        levels.put("a.", 2);
+        TagTrie<Integer> trie = new TagTrie<Integer>(levels);
+
+        assertNull(trie.get("my.logger"));
+        assertNull(trie.get("my"));
+        assertEquals(Integer.valueOf(1), trie.get("my.log.Foo"));
+        assertEquals(Integer.valueOf(2), trie.get("a."));
+        assertEquals(Integer.valueOf(2), trie.get("a..b"));
+        assertNull(trie.get("a.b"));
+    }
+
+    @Test
+    public void testManyEntries() {
+        Map<String, Integer> levels = new HashMap<String, Integer>();
+        for (int i = 0; i < 500; i++) {
+            levels.put("com.acme.module" + i, i);
+        }
+        TagTrie<Integer> trie = new TagTrie<Integer>(levels);
+
+        for (int i = 0; i < 500; i++) {
+            assertEquals(Integer.valueOf(i), trie.get("com.acme.module" + i + ".Foo"));
+        }
+        assertNull(trie.get("com.acme.module500"));
+    }
+
+}
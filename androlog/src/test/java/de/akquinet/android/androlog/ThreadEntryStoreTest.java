@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+import org.junit.Test;
+
+public class ThreadEntryStoreTest {
+
+    private static void log(final ThreadEntryStore store, final String message)
+            throws InterruptedException {
+        Thread thread = new Thread() {
+            public void run() {
+                store.add(Constants.INFO, -1, "tag", message, null);
+            }
+        };
+        thread.start();
+        thread.join();
+    }
+
+    @Test
+    public void testMergeInLogOrder() throws InterruptedException {
+        ThreadEntryStore store = new ThreadEntryStore(10, 0);
+        store.add(Constants.INFO, -1, "tag", "1", null);
+        log(store, "2");
+        store.add(Constants.INFO, -1, "tag", "3", null);
+        log(store, "4");
+        store.add(Constants.INFO, -1, "tag", "5", null);
+        assertEquals(Arrays.asList("I/tag: 1", "I/tag: 2", "I/tag: 3", "I/tag: 4", "I/tag: 5"),
+                store.getEntries());
+    }
+
+    @Test
+    public void testCapacities() throws InterruptedException {
+        ThreadEntryStore store = new ThreadEntryStore(2, 3);
+        for (int i = 0; i < 5; i++) {
+            store.add(Constants.INFO, -1, "tag", "main" + i, null);
+        }
+        log(store, "other");
+        // Per thread: main3, main4. Globally: the 3 most recent entries.
+        assertEquals(Arrays.asList("I/tag: main3", "I/tag: main4", "I/tag: other"),
+                store.getEntries());
+    }
+
+    @Test
+    public void testDeadThreads() throws InterruptedException {
+        ThreadEntryStore store = new ThreadEntryStore(5, 2);
+        log(store, "dead");
+        store.add(Constants.INFO, -1, "tag", "a", null);
+        store.add(Constants.INFO, -1, "tag", "b", null);
+        // The entry of the dead thread is too old, its buffer is dropped.
+        assertEquals(Arrays.asList("I/tag: a", "I/tag: b"), store.getEntries());
+
+        store = new ThreadEntryStore(5, 0);
+        for (int i = 0; i < ThreadEntryStore.MAX_DEAD_BUFFERS + 3; i++) {
+            log(store, "dead" + i);
+        }
+        List<String> entries = store.getEntries();
+        // The oldest dead buffers are dropped when new threads log.
+        assertEquals(ThreadEntryStore.MAX_DEAD_BUFFERS + 1, entries.size());
+        assertEquals("I/tag: dead" + (ThreadEntryStore.MAX_DEAD_BUFFERS + 2),
+                entries.get(entries.size() - 1));
+    }
+
+    @Test
+    public void testReplacedStoreReleasesTheBuffers() throws Exception {
+        ThreadEntryStore store = new ThreadEntryStore(10, 0);
+        store.add(Constants.INFO, -1, "tag", "old", null);
+        Field field = ThreadEntryStore.class.getDeclaredField("buffers");
+        field.setAccessible(true);
+        WeakReference<Object> buffer = new WeakReference<Object>(((Queue<?>) field.get(store)).peek());
+
+        // Replaced, as on reconfiguration, while this thread keeps logging.
+        store = new ThreadEntryStore(10, 0);
+        store.add(Constants.INFO, -1, "tag", "new", null);
+        for (int i = 0; i < 20 && buffer.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(buffer.get());
+    }
+
+}
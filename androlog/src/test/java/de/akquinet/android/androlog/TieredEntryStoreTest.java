@@ -0,0 +1,56 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TieredEntryStoreTest {
+
+    @Test
+    public void testWarningsSurviveDebugStreams() {
+        TieredEntryStore store = new TieredEntryStore(3, 2, 1);
+        store.add(Constants.INFO, -1, "tag", "started", null);
+        store.add(Constants.WARN, -1, "tag", "low memory", null);
+        for (int i = 0; i < 100; i++) {
+            store.add(Constants.DEBUG, -1, "tag", "debug" + i, null);
+        }
+        store.add(Constants.VERBOSE, -1, "tag", "verbose", null);
+        assertEquals(Arrays.asList("I/tag: started", "W/tag: low memory", "D/tag: debug98",
+                "D/tag: debug99", "X/tag: verbose"), store.getEntries());
+
+        store.add(Constants.ERROR, -1, "tag", "crash", null);
+        assertEquals(Arrays.asList("I/tag: started", "D/tag: debug98", "D/tag: debug99",
+                "X/tag: verbose", "E/tag: crash"), store.getEntries());
+    }
+
+    @Test
+    public void testParse() {
+        assertNotNull(TieredEntryStore.parse("200, 100, 50"));
+        assertNull(TieredEntryStore.parse("200,100"));
+        assertNull(TieredEntryStore.parse("a,b,c"));
+
+        TieredEntryStore store = TieredEntryStore.parse("0,1,1");
+        store.add(Constants.DEBUG, -1, "tag", "dropped", null);
+        store.add(Constants.INFO, -1, "tag", "kept", null);
+        assertEquals(Arrays.asList("I/tag: kept"), store.getEntries());
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Micro benchmark comparing the formatting of the report entry timestamps
+ * by a {@link TimestampFormat} with a new {@link SimpleDateFormat} per entry,
+ * as done before. The entries are 3 milliseconds apart, as in a busy log.
+ * This is not a unit test, run it with:
+ * <code>java -cp ... de.akquinet.android.androlog.TimestampBenchmark</code>
+ */
+public class TimestampBenchmark {
+
+    private static final int ITERATIONS = 1000000;
+
+    private static final long START = 1286000000000L;
+
+    public static void main(String[] args) {
+        // Warm up both paths before measuring.
+        for (int round = 0; round < 3; round++) {
+            long simple = measureSimpleDateFormat();
+            long cached = measureTimestampFormat();
+            if (round == 2) {
+                System.out.println("SimpleDateFormat: " + simple / ITERATIONS + " ns/op");
+                System.out.println("TimestampFormat : " + cached / ITERATIONS + " ns/op");
+            }
+        }
+    }
+
+    private static long measureSimpleDateFormat() {
+        int length = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            StringBuilder out = new StringBuilder(64);
+            out.append(new SimpleDateFormat(TimestampFormat.PATTERN).format(new Date(START + 3L * i)));
+            length += out.length();
+        }
+        long time = System.nanoTime() - begin;
+        consume(length);
+        return time;
+    }
+
+    private static long measureTimestampFormat() {
+        TimestampFormat format = new TimestampFormat();
+        int length = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            StringBuilder out = new StringBuilder(64);
+            format.format(START + 3L * i, out);
+            length += out.length();
+        }
+        long time = System.nanoTime() - begin;
+        consume(length);
+        return time;
+    }
+
+    private static void consume(int length) {
+        if (length == -1) {
+            System.out.println(length);
+        }
+    }
+
+}
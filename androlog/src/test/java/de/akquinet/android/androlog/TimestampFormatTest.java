@@ -0,0 +1,75 @@
+/*
+ * Copyright 2010 akquinet
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.akquinet.android.androlog;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TimestampFormatTest {
+
+    private final TimeZone zone = TimeZone.getDefault();
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(zone);
+    }
+
+    private static void assertFormat(TimestampFormat format, long time) {
+        StringBuilder out = new StringBuilder();
+        format.format(time, out);
+        assertEquals(new SimpleDateFormat(TimestampFormat.PATTERN).format(new Date(time)),
+                out.toString());
+    }
+
+    @Test
+    public void testSuccessiveEntries() {
+        TimestampFormat format = new TimestampFormat();
+        long start = 1286000000000L;
+        for (long time = start; time < start + 5000; time += 7) {
+            assertFormat(format, time);
+        }
+        assertFormat(format, 0);
+        assertFormat(format, start);
+    }
+
+    @Test
+    public void testRandomTimes() {
+        TimestampFormat format = new TimestampFormat();
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            // Up to year 2600.
+            assertFormat(format, (random.nextLong() >>> 1) % 20000000000000L);
+        }
+    }
+
+    @Test
+    public void testDaylightSavingTime() {
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+        TimestampFormat format = new TimestampFormat();
+        // 2010-10-31 03:00 CEST becomes 02:00 CET.
+        long change = 1288486800000L;
+        for (long time = change - 2000; time < change + 2000; time += 250) {
+            assertFormat(format, time);
+        }
+    }
+
+}